@@ -0,0 +1,253 @@
+package moe.seikimo.benchmarks;
+
+import io.javalin.config.Key;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.http.HttpStatus;
+import io.javalin.json.JavalinGson;
+import io.javalin.json.JsonMapper;
+import io.javalin.plugin.ContextPlugin;
+import io.javalin.security.RouteRole;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import moe.seikimo.rest.RestApplication;
+import moe.seikimo.rest.RestConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A context which doesn't need a servlet container.
+ * This isolates the cost of the library from the cost of Jetty.
+ */
+public final class BenchmarkContext implements Context {
+    private static final JsonMapper JSON_MAPPER = new JavalinGson();
+
+    private final String path;
+    private final Map<String, String> pathParams;
+    private final Map<String, List<String>> queryParams;
+    private final Map<String, String> headers = new HashMap<>();
+    private final Map<Key<?>, Object> appData = new HashMap<>();
+
+    private int status = 200;
+    private String contentType;
+    private InputStream result;
+
+    public BenchmarkContext(String path, Map<String, String> pathParams, Map<String, List<String>> queryParams) {
+        this.path = path;
+        this.pathParams = pathParams;
+        this.queryParams = queryParams;
+
+        // Published by every application, so responses never use the fallback.
+        this.appData.put(RestApplication.CONFIG, RestConfiguration.builder().build());
+    }
+
+    /**
+     * Resets the response, so the context can be reused.
+     *
+     * @return This context.
+     */
+    public BenchmarkContext reset() {
+        this.status = 200;
+        this.contentType = null;
+        this.result = null;
+        return this;
+    }
+
+    @NotNull @Override
+    public HttpServletRequest req() {
+        throw new UnsupportedOperationException();
+    }
+
+    @NotNull @Override
+    public HttpServletResponse res() {
+        throw new UnsupportedOperationException();
+    }
+
+    @NotNull @Override
+    public HandlerType handlerType() {
+        return HandlerType.GET;
+    }
+
+    @NotNull @Override
+    public HandlerType method() {
+        return HandlerType.GET;
+    }
+
+    @NotNull @Override
+    public String path() {
+        return this.path;
+    }
+
+    @NotNull @Override
+    public String matchedPath() {
+        return this.path;
+    }
+
+    @NotNull @Override
+    public String endpointHandlerPath() {
+        return this.path;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T appData(@NotNull Key<T> key) {
+        var value = this.appData.get(key);
+        if (value == null) throw new IllegalStateException("No application data for " + key.getId());
+        return (T) value;
+    }
+
+    @NotNull @Override
+    public JsonMapper jsonMapper() {
+        return JSON_MAPPER;
+    }
+
+    @Override
+    public <T> T with(@NotNull Class<? extends ContextPlugin<?, T>> clazz) {
+        throw new UnsupportedOperationException();
+    }
+
+    @NotNull @Override
+    public String pathParam(@NotNull String key) {
+        var value = this.pathParams.get(key);
+        if (value == null) throw new IllegalArgumentException(key);
+        return value;
+    }
+
+    @NotNull @Override
+    public Map<String, String> pathParamMap() {
+        return this.pathParams;
+    }
+
+    @Override
+    public String queryParam(@NotNull String key) {
+        var values = this.queryParams.get(key);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @NotNull @Override
+    public Map<String, List<String>> queryParamMap() {
+        return this.queryParams;
+    }
+
+    @Override
+    public String header(@NotNull String header) {
+        return null;
+    }
+
+    @NotNull @Override
+    public Context header(@NotNull String name, @NotNull String value) {
+        this.headers.put(name, value);
+        return this;
+    }
+
+    @NotNull @Override
+    public Context contentType(@NotNull String contentType) {
+        this.contentType = contentType;
+        return this;
+    }
+
+    @NotNull @Override
+    public Context status(int status) {
+        this.status = status;
+        return this;
+    }
+
+    @NotNull @Override
+    public Context status(@NotNull HttpStatus status) {
+        this.status = status.getCode();
+        return this;
+    }
+
+    @Override
+    public int statusCode() {
+        return this.status;
+    }
+
+    @NotNull @Override
+    public ServletOutputStream outputStream() {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+    }
+
+    @NotNull @Override
+    public Context minSizeForCompression(int size) {
+        return this;
+    }
+
+    @NotNull @Override
+    public Context result(@NotNull String result) {
+        return this.result(result.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @NotNull @Override
+    public Context result(@NotNull InputStream result) {
+        this.result = result;
+        return this;
+    }
+
+    @Override
+    public InputStream resultInputStream() {
+        return this.result;
+    }
+
+    @NotNull @Override
+    public Context json(@NotNull Object obj, @NotNull Type type) {
+        this.contentType = "application/json";
+        return this.result(new ByteArrayInputStream(JSON_MAPPER.toJsonString(obj, type)
+                .getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void future(@NotNull Supplier<? extends CompletableFuture<?>> future) {
+        future.get().join();
+    }
+
+    @Override
+    public void writeJsonStream(@NotNull java.util.stream.Stream<?> stream) {
+        JSON_MAPPER.writeToOutputStream(stream, OutputStream.nullOutputStream());
+    }
+
+    @Override
+    public void redirect(@NotNull String location, @NotNull HttpStatus status) {
+        throw new UnsupportedOperationException();
+    }
+
+    @NotNull @Override
+    public Context skipRemainingHandlers() {
+        return this;
+    }
+
+    @NotNull @Override
+    public Set<RouteRole> routeRoles() {
+        return Set.of();
+    }
+}
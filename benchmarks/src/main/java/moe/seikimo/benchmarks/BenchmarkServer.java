@@ -0,0 +1,55 @@
+package moe.seikimo.benchmarks;
+
+import moe.seikimo.benchmarks.app.BenchmarkApplication;
+import moe.seikimo.rest.RestApplication;
+import moe.seikimo.rest.RestConfiguration;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+
+/**
+ * Runs the benchmark application on a local port.
+ */
+public final class BenchmarkServer {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final RestApplication application;
+    private final int port;
+
+    /**
+     * Starts the benchmark application.
+     *
+     * @param builder The configuration to start with.
+     */
+    public BenchmarkServer(RestConfiguration.RestConfigurationBuilder builder) {
+        var config = builder.build();
+        var configurer = config.getConfigurer();
+        config.setConfigurer(javalin -> {
+            javalin.showJavalinBanner = false;
+            configurer.accept(javalin);
+        });
+
+        this.port = config.getPort();
+        this.application = RestApplication.run(BenchmarkApplication.class, config);
+    }
+
+    /**
+     * Sends a GET request to the application.
+     *
+     * @param path The path to request.
+     * @return The response body.
+     */
+    public String get(String path) throws Exception {
+        var request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + this.port + path)).build();
+        return this.client.send(request, BodyHandlers.ofString()).body();
+    }
+
+    /**
+     * Stops the application.
+     */
+    public void stop() {
+        this.application.stop();
+    }
+}
@@ -0,0 +1,51 @@
+package moe.seikimo.benchmarks;
+
+import moe.seikimo.rest.RequestHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code RequestHandler.handle} for each handler shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    private BenchmarkContext context;
+    private RequestHandler none, withContext, withArgs;
+
+    @Setup
+    public void setup() throws Exception {
+        var handlers = new Handlers();
+        this.none = new RequestHandler(handlers, Handlers.class.getMethod("none"));
+        this.withContext = new RequestHandler(handlers, Handlers.class.getMethod(
+                "context", moe.seikimo.rest.Request.class));
+        this.withArgs = new RequestHandler(handlers, Handlers.class.getMethod("args", int.class));
+
+        this.context = new BenchmarkContext("/item/42", Map.of("id", "42"), Map.of());
+    }
+
+    @Benchmark
+    public InputStream none() {
+        this.none.handle(this.context.reset());
+        return this.context.resultInputStream();
+    }
+
+    @Benchmark
+    public InputStream context() {
+        this.withContext.handle(this.context.reset());
+        return this.context.resultInputStream();
+    }
+
+    @Benchmark
+    public InputStream args() {
+        this.withArgs.handle(this.context.reset());
+        return this.context.resultInputStream();
+    }
+}
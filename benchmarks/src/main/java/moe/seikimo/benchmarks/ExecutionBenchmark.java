@@ -0,0 +1,50 @@
+package moe.seikimo.benchmarks;
+
+import moe.seikimo.rest.RestConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the default Jetty pool with virtual threads under a mixed workload.
+ * Most clients call a route which blocks (like a database call), while the rest call a fast route.
+ * Virtual threads are only used when the benchmark runs on a JVM which supports them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ExecutionBenchmark {
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private BenchmarkServer server;
+
+    @Setup
+    public void setup() {
+        this.server = new BenchmarkServer(RestConfiguration.builder()
+                .port(18081)
+                .virtualThreads(this.virtualThreads));
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        this.server.stop();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(480)
+    public String blocking() throws Exception {
+        return this.server.get("/io");
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(32)
+    public String fast() throws Exception {
+        return this.server.get("/hello");
+    }
+}
@@ -0,0 +1,21 @@
+package moe.seikimo.benchmarks;
+
+import moe.seikimo.rest.Request;
+import moe.seikimo.rest.annotations.params.Param;
+
+/**
+ * Route handlers for each shape supported by {@code RequestHandler}.
+ */
+public final class Handlers {
+    public String none() {
+        return "Hello World!";
+    }
+
+    public String context(Request request) {
+        return request.param("id", "none");
+    }
+
+    public String args(@Param("id") int id) {
+        return id == 42 ? "found" : "missing";
+    }
+}
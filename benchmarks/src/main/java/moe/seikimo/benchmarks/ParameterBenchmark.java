@@ -0,0 +1,68 @@
+package moe.seikimo.benchmarks;
+
+import com.google.gson.JsonObject;
+import moe.seikimo.rest.Request;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code Request.param(name, fallback, as)} conversions.
+ * Most benchmarks reuse the request, so they measure reading a cached value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterBenchmark {
+    private Request request;
+
+    @Setup
+    public void setup() {
+        this.request = new Request(new BenchmarkContext("/", Map.of(
+                "string", "value",
+                "int", "42",
+                "double", "4.2",
+                "json", "{\"key\":\"value\"}"
+        ), Map.of()));
+    }
+
+    @Benchmark
+    public String string() {
+        return this.request.param("string", "", String.class);
+    }
+
+    @Benchmark
+    public int integer() {
+        return this.request.param("int", 0, int.class);
+    }
+
+    @Benchmark
+    public int primitive() {
+        return this.request.paramInt("int");
+    }
+
+    @Benchmark
+    public int repeated() {
+        var request = new Request(this.request.handle());
+        return request.paramInt("int") + request.paramInt("int") + request.paramInt("int");
+    }
+
+    @Benchmark
+    public double decimal() {
+        return this.request.param("double", 0d, double.class);
+    }
+
+    @Benchmark
+    public JsonObject json() {
+        return this.request.param("json", null, JsonObject.class);
+    }
+
+    @Benchmark
+    public String missing() {
+        return this.request.param("missing", "fallback", String.class);
+    }
+}
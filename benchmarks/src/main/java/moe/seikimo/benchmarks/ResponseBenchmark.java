@@ -0,0 +1,65 @@
+package moe.seikimo.benchmarks;
+
+import com.google.gson.JsonObject;
+import moe.seikimo.general.JObject;
+import moe.seikimo.rest.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code Response.apply} for each type of body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+    private BenchmarkContext context;
+    private Response<String> string;
+    private Response<byte[]> bytes;
+    private Response<JsonObject> json, streamedJson;
+
+    @Setup
+    public void setup() {
+        this.context = new BenchmarkContext("/", Map.of(), Map.of());
+
+        var object = JObject.c()
+                .add("status", "ok")
+                .add("timestamp", 1700000000000L)
+                .add("message", "Hello World!")
+                .gson();
+        this.string = new Response<>("Hello World!");
+        this.bytes = new Response<>(new byte[1024]);
+        this.json = new Response<>(object);
+        this.streamedJson = new Response<>(object).streaming();
+    }
+
+    @Benchmark
+    public InputStream string() {
+        this.string.apply(this.context.reset());
+        return this.context.resultInputStream();
+    }
+
+    @Benchmark
+    public InputStream bytes() {
+        this.bytes.apply(this.context.reset());
+        return this.context.resultInputStream();
+    }
+
+    @Benchmark
+    public InputStream json() {
+        this.json.apply(this.context.reset());
+        return this.context.resultInputStream();
+    }
+
+    @Benchmark
+    public InputStream streamedJson() {
+        this.streamedJson.apply(this.context.reset());
+        return this.context.resultInputStream();
+    }
+}
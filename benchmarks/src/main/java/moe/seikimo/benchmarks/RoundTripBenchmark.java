@@ -0,0 +1,49 @@
+package moe.seikimo.benchmarks;
+
+import moe.seikimo.rest.RestConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full HTTP requests against an application on a local port, with each engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+    @Param({"JAVALIN", "STANDALONE"})
+    public RestConfiguration.Engine engine;
+
+    private BenchmarkServer server;
+
+    @Setup
+    public void setup() {
+        this.server = new BenchmarkServer(RestConfiguration.builder()
+                .port(18080)
+                .engine(this.engine));
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        this.server.stop();
+    }
+
+    @Benchmark
+    public String hello() throws Exception {
+        return this.server.get("/hello");
+    }
+
+    @Benchmark
+    public String param() throws Exception {
+        return this.server.get("/param/42");
+    }
+
+    @Benchmark
+    public String json() throws Exception {
+        return this.server.get("/json");
+    }
+}
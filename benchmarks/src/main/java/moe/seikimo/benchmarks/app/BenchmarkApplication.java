@@ -0,0 +1,44 @@
+package moe.seikimo.benchmarks.app;
+
+import com.google.gson.JsonObject;
+import moe.seikimo.general.Async;
+import moe.seikimo.general.JObject;
+import moe.seikimo.rest.Request;
+import moe.seikimo.rest.Response;
+import moe.seikimo.rest.annotations.methods.GET;
+
+/**
+ * The application served by the HTTP benchmarks.
+ */
+public final class BenchmarkApplication {
+    /**
+     * The time a simulated blocking call takes, in milliseconds.
+     */
+    public static final long IO_DELAY = 20;
+
+    @GET("/hello")
+    public String hello() {
+        return "Hello World!";
+    }
+
+    @GET("/param/{id}")
+    public String param(Request request) {
+        var id = request.param("id", 0, int.class);
+        return "Requested " + id;
+    }
+
+    @GET("/json")
+    public Response<JsonObject> json() {
+        return new Response<>(JObject.c()
+                .add("status", "ok")
+                .add("count", 42)
+                .gson());
+    }
+
+    @GET("/io")
+    public String io() {
+        // This simulates a blocking database or HTTP call.
+        Async.sleep(IO_DELAY);
+        return "Done waiting!";
+    }
+}
@@ -0,0 +1,106 @@
+package moe.seikimo.http.client;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Limits the amount of requests in flight to each host.
+ * Requests over the limit wait in order, without holding a thread.
+ * Hosts are only tracked while they have requests in flight.
+ */
+final class HostLimiter {
+    private final int limit;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * @param limit The maximum amount of requests in flight to a host.
+     */
+    HostLimiter(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Acquires a permit for a host.
+     * Every permit must be released with {@link #release(URI)}.
+     *
+     * @param uri The URI of the request.
+     * @return A future which completes once the request may be sent.
+     */
+    CompletableFuture<Void> acquire(URI uri) {
+        var permit = new AtomicReference<CompletableFuture<Void>>();
+        this.hosts.compute(HostLimiter.key(uri), (key, host) -> {
+            if (host == null) host = new Host();
+            permit.set(host.acquire());
+            return host;
+        });
+        return permit.get();
+    }
+
+    /**
+     * Releases a permit for a host, letting the next waiting request through.
+     * The host is forgotten once it has no requests in flight.
+     *
+     * @param uri The URI of the request.
+     */
+    void release(URI uri) {
+        var next = new AtomicReference<CompletableFuture<Void>>();
+        this.hosts.computeIfPresent(HostLimiter.key(uri), (key, host) -> {
+            next.set(host.waiting.poll());
+            if (next.get() != null) return host;
+
+            return --host.active == 0 ? null : host;
+        });
+
+        // The permit passes directly to the next request.
+        var waiting = next.get();
+        if (waiting != null) waiting.complete(null);
+    }
+
+    /**
+     * @return The amount of hosts with requests in flight.
+     */
+    int hosts() {
+        return this.hosts.size();
+    }
+
+    /**
+     * @param uri A URI.
+     * @return The key of the URI's host; default ports are made explicit.
+     */
+    static String key(URI uri) {
+        var scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase(Locale.ROOT);
+        var port = uri.getPort();
+        if (port < 0) {
+            port = scheme.equals("https") ? 443 : 80;
+        }
+
+        var host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        return scheme + "://" + host + ":" + port;
+    }
+
+    /**
+     * The permits of a host.
+     * This is only accessed while the map holds the host's entry.
+     */
+    private final class Host {
+        private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int active;
+
+        private CompletableFuture<Void> acquire() {
+            if (this.active < HostLimiter.this.limit) {
+                this.active++;
+                return CompletableFuture.completedFuture(null);
+            }
+
+            var future = new CompletableFuture<Void>();
+            this.waiting.add(future);
+            return future;
+        }
+    }
+}
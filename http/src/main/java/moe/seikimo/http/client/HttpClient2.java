@@ -1,15 +1,56 @@
 package moe.seikimo.http.client;
 
+import lombok.Setter;
 import lombok.SneakyThrows;
+import lombok.experimental.Accessors;
 
 import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class HttpClient2 {
-    private final HttpClient client = HttpClient.newHttpClient();
+    /**
+     * The default amount of requests in flight for {@link #executeAll(Collection)}.
+     */
+    public static final int DEFAULT_WINDOW = 64;
+
+    private final HttpClient client;
+    private final HostLimiter limiter;
     private final List<Interceptor> middleware = new ArrayList<>();
 
+    /**
+     * Creates a client with the default settings of Java's client.
+     */
+    public HttpClient2() {
+        this(new Builder());
+    }
+
+    private HttpClient2(Builder builder) {
+        var client = HttpClient.newBuilder();
+
+        var executor = builder.executor;
+        if (executor == null && builder.virtualThreads) {
+            executor = HttpClient2.virtualThreads();
+        }
+        if (executor != null) client.executor(executor);
+
+        if (builder.version != null) client.version(builder.version);
+        if (builder.connectTimeout != null) client.connectTimeout(builder.connectTimeout);
+
+        this.client = client.build();
+        this.limiter = builder.maxRequestsPerHost > 0 ?
+                new HostLimiter(builder.maxRequestsPerHost) : null;
+    }
+
     /**
      * Adds an interception function.
      *
@@ -28,16 +69,121 @@ public final class HttpClient2 {
      */
     @SneakyThrows
     public Response execute(Request request) {
-        // Apply middleware.
+        var prepared = this.prepare(request);
+        var handler = request.handler();
+        if (this.limiter == null) {
+            return HttpClient2.wrap(this.client.send(prepared, handler));
+        }
+
+        // Wait for a permit for the host.
+        this.limiter.acquire(prepared.uri()).join();
+        try {
+            return HttpClient2.wrap(this.client.send(prepared, handler));
+        } finally {
+            this.limiter.release(prepared.uri());
+        }
+    }
+
+    /**
+     * Executes a request without blocking.
+     * The middleware is applied on the calling thread, before the request is sent.
+     * When requests per host are limited, the permit is released once the response completes;
+     * streamed bodies are read after that, see {@link Builder#maxRequestsPerHost(int)}.
+     *
+     * @param request The request.
+     * @return A future which completes with the response.
+     */
+    public CompletableFuture<Response> executeAsync(Request request) {
+        HttpRequest prepared;
+        try {
+            prepared = this.prepare(request);
+        } catch (Throwable exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+
+        var handler = request.handler();
+        if (this.limiter == null) {
+            return this.client.sendAsync(prepared, handler)
+                    .thenApply(HttpClient2::wrap);
+        }
+
+        // Wait for a permit for the host, without blocking.
+        var uri = prepared.uri();
+        return this.limiter.acquire(uri)
+                .thenCompose(ignored -> this.client.sendAsync(prepared, handler))
+                .whenComplete((response, exception) -> this.limiter.release(uri))
+                .thenApply(HttpClient2::wrap);
+    }
+
+    /**
+     * Executes requests concurrently, with at most {@link #DEFAULT_WINDOW} in flight.
+     *
+     * @param requests The requests.
+     * @return The futures of the responses, in the order of the requests.
+     * @see #executeAll(Collection, int)
+     */
+    public List<CompletableFuture<Response>> executeAll(Collection<Request> requests) {
+        return this.executeAll(requests, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Executes requests concurrently.
+     * Each request is sent once a request before it completes, so at most {@code window} are in flight;
+     * requests to the same HTTP/2 server share its connection.
+     * Each future completes as soon as its own response arrives.
+     *
+     * @param requests The requests.
+     * @param window The maximum amount of requests in flight.
+     * @return The futures of the responses, in the order of the requests.
+     */
+    public List<CompletableFuture<Response>> executeAll(Collection<Request> requests, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must be positive.");
+        }
+
+        var futures = new ArrayList<CompletableFuture<Response>>(requests.size());
+        for (var i = 0; i < requests.size(); i++) {
+            futures.add(new CompletableFuture<>());
+        }
+
+        new Batch(requests.iterator(), futures.iterator(), window).drain();
+        return futures;
+    }
+
+    /**
+     * Applies the middleware to a request.
+     *
+     * @param request The request.
+     * @return The request to send.
+     */
+    private HttpRequest prepare(Request request) {
         for (var interceptor : this.middleware) {
             interceptor.intercept(request);
         }
 
-        // Send the request.
-        var internal = this.client.send(request.convert(),
-                request.getResponse().getHandler());
+        return request.convert();
+    }
 
-        // Parse the response.
+    /**
+     * Creates an executor which runs each task on a new virtual thread.
+     * Virtual threads are only available on Java 21 and later, so this is looked up reflectively.
+     *
+     * @return The executor, or null if virtual threads are unavailable.
+     */
+    private static Executor virtualThreads() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factory.invoke(null);
+        } catch (ReflectiveOperationException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * @param internal The response received by Java.
+     * @return The parsed response.
+     */
+    private static Response wrap(HttpResponse<?> internal) {
         return new Response(
                 internal.statusCode(),
                 internal.body(),
@@ -45,6 +191,95 @@ public final class HttpClient2 {
         );
     }
 
+    /**
+     * Sends the requests of {@link #executeAll(Collection, int)} as others complete.
+     */
+    private final class Batch {
+        private final Iterator<Request> requests;
+        private final Iterator<CompletableFuture<Response>> futures;
+        private final int window;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger draining = new AtomicInteger();
+
+        private Batch(Iterator<Request> requests,
+                      Iterator<CompletableFuture<Response>> futures, int window) {
+            this.requests = requests;
+            this.futures = futures;
+            this.window = window;
+        }
+
+        /**
+         * Sends requests until the window is full.
+         * Only one thread sends at a time; requests which complete while sending are picked up by that thread.
+         */
+        private void drain() {
+            if (this.draining.getAndIncrement() != 0) return;
+
+            do {
+                while (this.inFlight.get() < this.window && this.requests.hasNext()) {
+                    var request = this.requests.next();
+                    var future = this.futures.next();
+
+                    this.inFlight.incrementAndGet();
+                    HttpClient2.this.executeAsync(request).whenComplete((response, exception) -> {
+                        // Refill the window before running the caller's callbacks.
+                        this.inFlight.decrementAndGet();
+                        this.drain();
+
+                        if (exception != null) {
+                            future.completeExceptionally(exception);
+                        } else {
+                            future.complete(response);
+                        }
+                    });
+                }
+            } while (this.draining.decrementAndGet() != 0);
+        }
+    }
+
+    @Setter
+    @Accessors(chain = true, fluent = true)
+    public static final class Builder {
+        /**
+         * The executor for asynchronous tasks; Java's default is used when this is null.
+         */
+        private Executor executor = null;
+        /**
+         * Whether to run asynchronous tasks on virtual threads, when no executor is set.
+         * This falls back to Java's default executor before Java 21.
+         */
+        private boolean virtualThreads = false;
+        /**
+         * The preferred HTTP version; Java prefers HTTP/2 when this is null.
+         */
+        private HttpClient.Version version = null;
+        /**
+         * The maximum time to wait for a connection; Java waits indefinitely when this is null.
+         */
+        private Duration connectTimeout = null;
+        /**
+         * The maximum amount of requests in flight to each host; 0 is unlimited.
+         * Requests over the limit wait until an earlier request to the host completes.
+         * A request completes once its body is received; for {@code FILE}, {@code JSON} and {@code PUBLISHER}
+         * responses, that is when the headers arrive, so reading their bodies doesn't hold a permit.
+         */
+        private int maxRequestsPerHost = 0;
+
+        /**
+         * Creates the client.
+         *
+         * @return The client.
+         */
+        public HttpClient2 build() {
+            if (this.maxRequestsPerHost < 0) {
+                throw new IllegalStateException("Requests per host cannot be negative.");
+            }
+
+            return new HttpClient2(this);
+        }
+    }
+
     public interface Interceptor {
         /**
          * Called when a request is intercepted.
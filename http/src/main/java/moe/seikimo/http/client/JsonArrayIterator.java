@@ -0,0 +1,84 @@
+package moe.seikimo.http.client;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Decodes the elements of a top-level JSON array one at a time, as they are read.
+ * Only the current element is held in memory.
+ * The underlying reader is closed once the array ends, or when this is closed.
+ *
+ * @param <T> The type of the elements.
+ */
+public final class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+    private final JsonReader reader;
+    private final TypeAdapter<T> adapter;
+    private boolean done = false;
+
+    /**
+     * @param gson The Gson instance to decode with.
+     * @param reader The reader of the array.
+     * @param type The type of the elements.
+     */
+    JsonArrayIterator(Gson gson, Reader reader, Class<T> type) {
+        this.reader = gson.newJsonReader(reader);
+        this.adapter = gson.getAdapter(type);
+
+        try {
+            this.reader.beginArray();
+        } catch (IOException | IllegalStateException exception) {
+            this.close();
+            throw new IllegalStateException(
+                    "Response body is not a JSON array", exception);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.done) return false;
+
+        try {
+            if (this.reader.hasNext()) return true;
+
+            this.reader.endArray();
+            this.close();
+            return false;
+        } catch (IOException exception) {
+            this.close();
+            throw new IllegalStateException(
+                    "Failed to read response body", exception);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            return this.adapter.read(this.reader);
+        } catch (IOException exception) {
+            this.close();
+            throw new IllegalStateException(
+                    "Failed to read response body", exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.done = true;
+        try {
+            this.reader.close();
+        } catch (IOException ignored) {
+            // The body was already read or abandoned.
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package moe.seikimo.http.client;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.experimental.Accessors;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * A multipart/form-data body.
+ * Parts are streamed in order when the request is sent, so files are never read into memory.
+ */
+@Accessors(fluent = true)
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class MultipartBody {
+    @Getter private final String boundary;
+    private final List<BodyPublisher> parts;
+
+    /**
+     * @return The Content-Type header of the body.
+     */
+    public String contentType() {
+        return "multipart/form-data; boundary=" + this.boundary;
+    }
+
+    /**
+     * The length is only known if the length of every part is known.
+     *
+     * @return The publisher of the body.
+     */
+    public BodyPublisher publisher() {
+        return BodyPublishers.concat(this.parts.toArray(BodyPublisher[]::new));
+    }
+
+    public static final class Builder {
+        private final String boundary = "magix-" + UUID.randomUUID();
+        private final List<BodyPublisher> parts = new ArrayList<>();
+
+        /**
+         * Adds a text field to the body.
+         *
+         * @param name The name of the field.
+         * @param value The value of the field.
+         * @return The builder.
+         */
+        public MultipartBody.Builder addField(String name, String value) {
+            return this.addPart(
+                    "Content-Disposition: form-data; name=\"%s\"\r\n"
+                            .formatted(MultipartBody.escape(name)),
+                    BodyPublishers.ofString(value, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Adds a file to the body.
+         * The file is read while the request is sent; its type is guessed from its name.
+         *
+         * @param name The name of the field.
+         * @param file The file.
+         * @return The builder.
+         */
+        @SneakyThrows
+        public MultipartBody.Builder addFile(String name, File file) {
+            var type = Files.probeContentType(file.toPath());
+            return this.addFile(name, file.getName(),
+                    type == null ? "application/octet-stream" : type,
+                    BodyPublishers.ofFile(file.toPath()));
+        }
+
+        /**
+         * Adds a stream to the body, as a file.
+         * The stream is opened and read while the request is sent.
+         *
+         * @param name The name of the field.
+         * @param fileName The name of the file.
+         * @param contentType The type of the file.
+         * @param stream Opens the contents of the file.
+         * @return The builder.
+         */
+        public MultipartBody.Builder addFile(String name, String fileName, String contentType,
+                                             Supplier<? extends InputStream> stream) {
+            return this.addFile(name, fileName, contentType, BodyPublishers.ofInputStream(stream));
+        }
+
+        /**
+         * Adds a file part to the body.
+         *
+         * @param name The name of the field.
+         * @param fileName The name of the file.
+         * @param contentType The type of the file.
+         * @param content The contents of the file.
+         * @return The builder.
+         */
+        private MultipartBody.Builder addFile(String name, String fileName,
+                                              String contentType, BodyPublisher content) {
+            return this.addPart(
+                    "Content-Disposition: form-data; name=\"%s\"; filename=\"%s\"\r\nContent-Type: %s\r\n"
+                            .formatted(MultipartBody.escape(name), MultipartBody.escape(fileName), contentType),
+                    content);
+        }
+
+        /**
+         * Adds a part to the body.
+         *
+         * @param headers The headers of the part, each ending with CRLF.
+         * @param content The contents of the part.
+         * @return The builder.
+         */
+        private MultipartBody.Builder addPart(String headers, BodyPublisher content) {
+            var head = "--" + this.boundary + "\r\n" + headers + "\r\n";
+            this.parts.add(BodyPublishers.ofString(head, StandardCharsets.UTF_8));
+            this.parts.add(content);
+            this.parts.add(BodyPublishers.ofString("\r\n"));
+            return this;
+        }
+
+        /**
+         * Validates and creates the body.
+         *
+         * @return The body.
+         */
+        public MultipartBody build() {
+            if (this.parts.isEmpty()) {
+                throw new IllegalStateException("Multipart body requires a part.");
+            }
+
+            var parts = new ArrayList<>(this.parts);
+            parts.add(BodyPublishers.ofString("--" + this.boundary + "--\r\n"));
+            return new MultipartBody(this.boundary, parts);
+        }
+    }
+
+    /**
+     * Escapes a name for a Content-Disposition header, as browsers do.
+     *
+     * @param name The name.
+     * @return The escaped name.
+     */
+    private static String escape(String name) {
+        return name
+                .replace("\"", "%22")
+                .replace("\r", "%0D")
+                .replace("\n", "%0A");
+    }
+}
@@ -3,17 +3,19 @@ package moe.seikimo.http.client;
 import lombok.*;
 import lombok.experimental.Accessors;
 import moe.seikimo.general.EncodingUtils;
-import moe.seikimo.general.FileUtils;
 
 import java.io.File;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @ToString
 @Getter @Setter
@@ -29,8 +31,10 @@ public final class Request {
     private URI url;
     private String method;
     private byte[] body;
+    private HttpRequest.BodyPublisher publisher;
     private Map<String, String> headers;
     private final ResponseType response;
+    private final Path saveTo;
 
     /**
      * Adds a header to the request.
@@ -58,6 +62,8 @@ public final class Request {
         if (this.body != null) {
             builder = builder
                     .method(this.method, BodyPublishers.ofByteArray(this.body));
+        } else if (this.publisher != null) {
+            builder = builder.method(this.method, this.publisher);
         } else {
             builder = builder.method(this.method, BodyPublishers.noBody());
         }
@@ -70,12 +76,23 @@ public final class Request {
         return builder.build();
     }
 
+    /**
+     * @return The handler for the response body.
+     */
+    public HttpResponse.BodyHandler<?> handler() {
+        return this.saveTo != null ?
+                BodyHandlers.ofFile(this.saveTo) :
+                this.response.getHandler();
+    }
+
     @Getter
     @RequiredArgsConstructor
     public enum ResponseType {
         STRING(BodyHandlers.ofString()),
         BYTES(BodyHandlers.ofByteArray()),
-        FILE(BodyHandlers.ofInputStream());
+        FILE(BodyHandlers.ofInputStream()), // Streamed to disk by Response#bodyAsFile.
+        PUBLISHER(BodyHandlers.ofPublisher()), // Read incrementally with Response#bodyAsPublisher.
+        JSON(BodyHandlers.ofInputStream()); // Decoded while it is read by Response#bodyAsClass and #bodyAsArray.
 
         final HttpResponse.BodyHandler<?> handler;
     }
@@ -85,8 +102,10 @@ public final class Request {
     public static final class Builder {
         private String url, method = "GET";
         private byte[] body = null;
+        private HttpRequest.BodyPublisher publisher = null;
         private ResponseType responseType
                 = ResponseType.STRING;
+        private Path saveTo = null;
 
         private final Map<String, String> headers
                 = new HashMap<>();
@@ -121,6 +140,7 @@ public final class Request {
          */
         public Request.Builder addBodyJson(Object body) {
             this.body = EncodingUtils.jsonEncode(body).getBytes();
+            this.publisher = null;
             this.headers.put("Content-Type", "application/json");
             return this;
         }
@@ -145,6 +165,7 @@ public final class Request {
             builder.deleteCharAt(builder.length() - 1);
 
             this.body = builder.toString().getBytes();
+            this.publisher = null;
             this.headers.put("Content-Type", "application/x-www-form-urlencoded");
             return this;
         }
@@ -158,6 +179,7 @@ public final class Request {
          */
         public Request.Builder addBody(String body) {
             this.body = body.getBytes();
+            this.publisher = null;
             this.headers.put("Content-Type", "text/plain");
             return this;
         }
@@ -171,20 +193,72 @@ public final class Request {
          */
         public Request.Builder addBody(byte[] body) {
             this.body = body;
+            this.publisher = null;
             this.headers.put("Content-Type", "application/octet-stream");
             return this;
         }
 
         /**
          * Adds a binary body to the request.
-         * The body will be encoded as a byte array.
+         * The file is streamed while the request is sent, so it is never read into memory.
          *
          * @param body The body.
          * @return The builder.
          */
+        @SneakyThrows
         public Request.Builder addBody(File body) {
-            this.body = FileUtils.readFile(body);
-            this.headers.put("Content-Type", "application/octet-stream");
+            return this.addBody(BodyPublishers.ofFile(body.toPath()),
+                    "application/octet-stream");
+        }
+
+        /**
+         * Adds a binary body to the request.
+         * The stream is opened and read while the request is sent.
+         * Since its length is unknown, the body is sent in chunks.
+         *
+         * @param body Opens the body.
+         * @return The builder.
+         */
+        public Request.Builder addBody(Supplier<? extends InputStream> body) {
+            return this.addBody(BodyPublishers.ofInputStream(body),
+                    "application/octet-stream");
+        }
+
+        /**
+         * Adds a multipart/form-data body to the request.
+         * The parts are streamed while the request is sent.
+         *
+         * @param body The body.
+         * @return The builder.
+         */
+        public Request.Builder addBody(MultipartBody body) {
+            return this.addBody(body.publisher(), body.contentType());
+        }
+
+        /**
+         * Adds a body to the request, which is published while the request is sent.
+         *
+         * @param body The publisher of the body.
+         * @param contentType The type of the body.
+         * @return The builder.
+         */
+        public Request.Builder addBody(HttpRequest.BodyPublisher body, String contentType) {
+            this.body = null;
+            this.publisher = body;
+            this.headers.put("Content-Type", contentType);
+            return this;
+        }
+
+        /**
+         * Writes the response body directly to a file, as it is received.
+         * The body can be read again with {@link Response#bodyAsPath()}.
+         *
+         * @param file The file to write to.
+         * @return The builder.
+         */
+        public Request.Builder saveTo(File file) {
+            this.saveTo = file.toPath();
+            this.responseType = ResponseType.FILE;
             return this;
         }
 
@@ -208,12 +282,13 @@ public final class Request {
                 throw new IllegalStateException("Method must be one of: "
                         + String.join(", ", Request.METHODS));
             }
-            if (Request.NEED_BODY.contains(this.method) && this.body == null) {
+            if (Request.NEED_BODY.contains(this.method) &&
+                    this.body == null && this.publisher == null) {
                 throw new IllegalStateException("Method requires a body.");
             }
 
             return new Request(new URI(this.url), this.method,
-                    this.body, this.headers, this.responseType);
+                    this.body, this.publisher, this.headers, this.responseType, this.saveTo);
         }
     }
 }
@@ -5,11 +5,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import moe.seikimo.general.EncodingUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Flow;
 
 @Accessors(fluent = true)
 @RequiredArgsConstructor
@@ -46,35 +57,149 @@ public final class Response {
     /**
      * JSON-decodes the response body.
      * This can only be used if the response is JSON.
+     * Streamed bodies ({@link Request.ResponseType#JSON}) are decoded while they are read.
      *
      * @param clazz The class to decode to.
      * @return The decoded object.
      */
     public <T> T bodyAsClass(Class<T> clazz) {
-        // Check if the response is JSON.
+        this.checkJson();
+
+        if (this.body instanceof String strBody) {
+            return EncodingUtils.jsonDecode(strBody, clazz);
+        }
+
+        try (var reader = this.bodyAsReader()) {
+            return EncodingUtils.jsonDecode(reader, clazz);
+        } catch (IOException exception) {
+            throw new IllegalStateException(
+                    "Failed to read response body", exception);
+        }
+    }
+
+    /**
+     * Decodes the elements of a JSON array body one at a time.
+     * This can only be used if the response is a JSON array.
+     * With {@link Request.ResponseType#JSON}, only the current element is held in memory.
+     *
+     * @param clazz The class of the elements.
+     * @return An iterator over the elements, which should be closed if it isn't exhausted.
+     */
+    public <T> JsonArrayIterator<T> bodyAsArray(Class<T> clazz) {
+        this.checkJson();
+        return new JsonArrayIterator<>(
+                EncodingUtils.JSON.get(), this.bodyAsReader(), clazz);
+    }
+
+    /**
+     * Checks that the response is JSON.
+     */
+    private void checkJson() {
         if (!this.header("Content-Type")
-                .equals("application/json")) {
+                .startsWith("application/json")) {
             throw new IllegalStateException("Response is not JSON");
         }
+    }
+
+    /**
+     * Opens a reader over the response body.
+     * The charset of the Content-Type header is used; UTF-8 is assumed if there is none.
+     *
+     * @return The reader.
+     */
+    private Reader bodyAsReader() {
+        if (this.body instanceof String strBody)
+            return new StringReader(strBody);
+
+        InputStream stream;
+        try {
+            if (this.body instanceof InputStream streamBody)
+                stream = streamBody;
+            else if (this.body instanceof Path pathBody)
+                stream = Files.newInputStream(pathBody);
+            else
+                stream = new ByteArrayInputStream(this.bodyAsBytes());
+        } catch (IOException exception) {
+            throw new IllegalStateException(
+                    "Failed to read response body", exception);
+        }
+
+        return new InputStreamReader(stream, this.charset());
+    }
 
-        return EncodingUtils.jsonDecode(
-                this.bodyAsString(), clazz);
+    /**
+     * @return The charset of the response body.
+     */
+    private Charset charset() {
+        var type = this.header("Content-Type");
+        var index = type.toLowerCase().indexOf("charset=");
+        if (index < 0) return StandardCharsets.UTF_8;
+
+        var end = type.indexOf(';', index);
+        var name = type.substring(index + 8, end < 0 ? type.length() : end)
+                .trim().replace("\"", "");
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException ignored) {
+            return StandardCharsets.UTF_8;
+        }
     }
 
     /**
      * Saves the response body to a file.
+     * Streamed bodies ({@link Request.ResponseType#FILE}) are copied to the file as they are read,
+     * so the body is never held in memory.
      *
      * @param saveTo The file to save to.
      */
     public void bodyAsFile(File saveTo) {
+        var target = saveTo.toPath();
         try {
-            Files.write(saveTo.toPath(), this.bodyAsBytes());
+            if (this.body instanceof InputStream streamBody) {
+                try (streamBody) {
+                    Files.copy(streamBody, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else if (this.body instanceof Path pathBody) {
+                // The body was already written by Request.Builder#saveTo.
+                if (!Files.exists(target) || !Files.isSameFile(pathBody, target)) {
+                    Files.copy(pathBody, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                Files.write(target, this.bodyAsBytes());
+            }
         } catch (IOException exception) {
             throw new IllegalStateException(
                     "Failed to write file", exception);
         }
     }
 
+    /**
+     * This can only be used if the request was built with {@link Request.Builder#saveTo(File)}.
+     *
+     * @return The file which the response body was written to.
+     */
+    public Path bodyAsPath() {
+        if (!(this.body instanceof Path pathBody))
+            throw new IllegalStateException("Response body was not saved to a file");
+
+        return pathBody;
+    }
+
+    /**
+     * Returns the response body as it is received.
+     * This can only be used with {@link Request.ResponseType#PUBLISHER}.
+     * The body can only be subscribed to once.
+     *
+     * @return The publisher of the response body.
+     */
+    @SuppressWarnings("unchecked")
+    public Flow.Publisher<List<ByteBuffer>> bodyAsPublisher() {
+        if (!(this.body instanceof Flow.Publisher<?> publisherBody))
+            throw new IllegalStateException("Response body is not a publisher");
+
+        return (Flow.Publisher<List<ByteBuffer>>) publisherBody;
+    }
+
     /**
      * @return The response body as a byte array.
      */
@@ -87,6 +212,8 @@ public final class Response {
                 body = bytesBody;
             else if (this.body instanceof InputStream streamBody)
                 body = streamBody.readAllBytes();
+            else if (this.body instanceof Path pathBody)
+                body = Files.readAllBytes(pathBody);
 
             return body;
         } catch (IOException exception) {
@@ -0,0 +1,348 @@
+package moe.seikimo.http.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class HttpClient2Test {
+    private static final int LARGE_SIZE = 4 * 1024 * 1024;
+    private static final int ITEMS = 10_000;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @Before
+    public void start() throws IOException {
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(this.executor);
+
+        this.server.createContext("/echo", exchange -> HttpClient2Test.respond(exchange,
+                exchange.getRequestURI().getQuery() + ":" +
+                        exchange.getRequestHeaders().getFirst("Client-Test")));
+        this.server.createContext("/slow", exchange -> {
+            var active = this.active.incrementAndGet();
+            this.peak.accumulateAndGet(active, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            this.active.decrementAndGet();
+            HttpClient2Test.respond(exchange, exchange.getRequestURI().getQuery());
+        });
+        this.server.createContext("/large", exchange -> {
+            // The body is chunked, so it is never buffered by the server.
+            var chunk = new byte[64 * 1024];
+            exchange.sendResponseHeaders(200, 0);
+            try (var output = exchange.getResponseBody()) {
+                for (var written = 0; written < LARGE_SIZE; written += chunk.length) {
+                    chunk[0] = (byte) (written / chunk.length);
+                    output.write(chunk);
+                }
+            }
+        });
+        this.server.createContext("/items", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (var output = exchange.getResponseBody()) {
+                output.write('[');
+                for (var i = 0; i < ITEMS; i++) {
+                    if (i > 0) output.write(',');
+                    output.write("{\"id\":%d,\"name\":\"item-%d\"}".formatted(i, i)
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+                output.write(']');
+            }
+        });
+        this.server.createContext("/upload", exchange -> {
+            var body = exchange.getRequestBody().readAllBytes();
+            var type = exchange.getRequestHeaders().getFirst("Content-Type");
+            HttpClient2Test.respond(exchange, type + "\n" + body.length + "\n" +
+                    (type.startsWith("multipart") ? new String(body, StandardCharsets.UTF_8) : ""));
+        });
+        this.server.start();
+    }
+
+    @After
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (var output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private Request request(String path) {
+        return new Request.Builder()
+                .url("http://127.0.0.1:" + this.server.getAddress().getPort() + path)
+                .build();
+    }
+
+    /**
+     * This test ensures that the middleware is applied the same way when executing asynchronously.
+     */
+    @Test
+    public void interceptAsync() {
+        var client = new HttpClient2()
+                .intercept(request -> request.addHeader("Client-Test", "true"));
+
+        Assert.assertEquals("a=1:true", client.execute(this.request("/echo?a=1")).bodyAsString());
+        Assert.assertEquals("a=2:true", client.executeAsync(this.request("/echo?a=2")).join().bodyAsString());
+
+        // Exceptions thrown by the middleware fail the future.
+        var failing = new HttpClient2().intercept(request -> {
+            throw new IllegalStateException("Rejected");
+        });
+        var exception = Assert.assertThrows(CompletionException.class,
+                () -> failing.executeAsync(this.request("/echo")).join());
+        Assert.assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    /**
+     * This test ensures that batches keep the window full, without exceeding it.
+     */
+    @Test
+    public void executeWithinWindow() {
+        var requests = new ArrayList<Request>();
+        for (var i = 0; i < 24; i++) {
+            requests.add(this.request("/slow?" + i));
+        }
+
+        var futures = new HttpClient2().executeAll(requests, 4);
+        Assert.assertEquals(requests.size(), futures.size());
+        for (var i = 0; i < futures.size(); i++) {
+            Assert.assertEquals(String.valueOf(i), futures.get(i).join().bodyAsString());
+        }
+
+        Assert.assertTrue("Peak of " + this.peak.get(), this.peak.get() <= 4);
+        Assert.assertTrue("Peak of " + this.peak.get(), this.peak.get() >= 2);
+    }
+
+    /**
+     * This test ensures that requests to a host wait for a permit, on both execution paths.
+     */
+    @Test
+    public void limitRequestsPerHost() throws Exception {
+        var client = new HttpClient2.Builder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .virtualThreads(true)
+                .maxRequestsPerHost(2)
+                .build();
+
+        var requests = new ArrayList<Request>();
+        for (var i = 0; i < 12; i++) {
+            requests.add(this.request("/slow?" + i));
+        }
+
+        var futures = client.executeAll(requests, 8);
+        var blocking = new Thread(() -> client.execute(this.request("/slow?sync")));
+        blocking.start();
+
+        for (var i = 0; i < futures.size(); i++) {
+            Assert.assertEquals(String.valueOf(i), futures.get(i).join().bodyAsString());
+        }
+        blocking.join();
+
+        Assert.assertTrue("Peak of " + this.peak.get(), this.peak.get() <= 2);
+    }
+
+    /**
+     * This test ensures that default ports share the permits of explicit ports, and idle hosts are forgotten.
+     */
+    @Test
+    public void trackHostsWhileActive() {
+        Assert.assertEquals(HostLimiter.key(URI.create("http://Example.com/a")),
+                HostLimiter.key(URI.create("http://example.com:80/b")));
+        Assert.assertEquals("https://example.com:443", HostLimiter.key(URI.create("https://example.com/")));
+
+        var limiter = new HostLimiter(1);
+        Assert.assertTrue(limiter.acquire(URI.create("http://example.com/a")).isDone());
+        var waiting = limiter.acquire(URI.create("http://example.com:80/b"));
+        Assert.assertFalse(waiting.isDone());
+
+        limiter.release(URI.create("http://example.com/a"));
+        Assert.assertTrue(waiting.isDone());
+        Assert.assertEquals(1, limiter.hosts());
+
+        limiter.release(URI.create("http://example.com:80/b"));
+        Assert.assertEquals(0, limiter.hosts());
+    }
+
+    /**
+     * This test ensures that bodies can be streamed to disk, or consumed as they are received.
+     */
+    @Test
+    public void streamBodies() throws Exception {
+        var client = new HttpClient2();
+        var file = File.createTempFile("magix-http", ".bin");
+        file.deleteOnExit();
+
+        // Streamed bodies are copied to the file.
+        var streamed = client.execute(new Request.Builder()
+                .url("http://127.0.0.1:" + this.server.getAddress().getPort() + "/large")
+                .responseType(Request.ResponseType.FILE)
+                .build());
+        streamed.bodyAsFile(file);
+        Assert.assertEquals(LARGE_SIZE, file.length());
+
+        // Bodies can be written to the file while they are received.
+        Assert.assertTrue(file.delete());
+        var saved = client.execute(new Request.Builder()
+                .url("http://127.0.0.1:" + this.server.getAddress().getPort() + "/large")
+                .saveTo(file)
+                .build());
+        Assert.assertEquals(file.toPath(), saved.bodyAsPath());
+        Assert.assertEquals(LARGE_SIZE, Files.size(saved.bodyAsPath()));
+        Assert.assertEquals(63, Files.readAllBytes(saved.bodyAsPath())[LARGE_SIZE - 64 * 1024]);
+
+        // Published bodies are received incrementally.
+        var published = client.execute(new Request.Builder()
+                .url("http://127.0.0.1:" + this.server.getAddress().getPort() + "/large")
+                .responseType(Request.ResponseType.PUBLISHER)
+                .build());
+        var received = new CompletableFuture<Long>();
+        published.bodyAsPublisher().subscribe(new Flow.Subscriber<>() {
+            private long bytes;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<ByteBuffer> buffers) {
+                for (var buffer : buffers) {
+                    this.bytes += buffer.remaining();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                received.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                received.complete(this.bytes);
+            }
+        });
+        Assert.assertEquals(LARGE_SIZE, (long) received.join());
+    }
+
+    /**
+     * This test ensures that JSON bodies are decoded from the stream, and arrays element by element.
+     */
+    @Test
+    public void decodeJsonStream() {
+        var client = new HttpClient2();
+        var url = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/items";
+
+        var decoded = client.execute(new Request.Builder()
+                .url(url).responseType(Request.ResponseType.JSON).build())
+                .bodyAsClass(Item[].class);
+        Assert.assertEquals(ITEMS, decoded.length);
+        Assert.assertEquals("item-42", decoded[42].name);
+
+        var count = 0;
+        try (var items = client.execute(new Request.Builder()
+                .url(url).responseType(Request.ResponseType.JSON).build())
+                .bodyAsArray(Item.class)) {
+            while (items.hasNext()) {
+                Assert.assertEquals(count++, items.next().id);
+            }
+        }
+        Assert.assertEquals(ITEMS, count);
+
+        // Buffered bodies can be iterated too.
+        var buffered = client.execute(new Request.Builder().url(url).build())
+                .bodyAsArray(Item.class);
+        Assert.assertEquals("item-0", buffered.next().name);
+        buffered.close();
+        Assert.assertFalse(buffered.hasNext());
+    }
+
+    /**
+     * This test ensures that files, streams and multipart bodies are sent without buffering them first.
+     */
+    @Test
+    public void streamRequestBodies() throws Exception {
+        var client = new HttpClient2();
+        var url = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/upload";
+
+        var file = File.createTempFile("magix-http", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[LARGE_SIZE]);
+
+        var uploaded = client.execute(new Request.Builder()
+                .url(url).method("POST").addBody(file).build());
+        Assert.assertEquals("application/octet-stream\n" + LARGE_SIZE + "\n", uploaded.bodyAsString());
+
+        var streamed = client.execute(new Request.Builder()
+                .url(url).method("PUT")
+                .addBody(() -> new ByteArrayInputStream(new byte[1234]))
+                .build());
+        Assert.assertEquals("application/octet-stream\n1234\n", streamed.bodyAsString());
+
+        var multipart = new MultipartBody.Builder()
+                .addField("title", "Report")
+                .addFile("attachment", "report.txt", "text/plain",
+                        () -> new ByteArrayInputStream("contents".getBytes(StandardCharsets.UTF_8)))
+                .build();
+        var lines = client.execute(new Request.Builder()
+                .url(url).method("POST").addBody(multipart).build())
+                .bodyAsString().split("\n", 3);
+        Assert.assertEquals(multipart.contentType(), lines[0]);
+        Assert.assertEquals(String.join("\r\n",
+                "--" + multipart.boundary(),
+                "Content-Disposition: form-data; name=\"title\"",
+                "",
+                "Report",
+                "--" + multipart.boundary(),
+                "Content-Disposition: form-data; name=\"attachment\"; filename=\"report.txt\"",
+                "Content-Type: text/plain",
+                "",
+                "contents",
+                "--" + multipart.boundary() + "--",
+                ""), lines[2]);
+
+        Assert.assertThrows(IllegalStateException.class, () -> new Request.Builder()
+                .url(url).method("POST").build());
+    }
+
+    public static final class Item {
+        private int id;
+        private String name;
+    }
+}
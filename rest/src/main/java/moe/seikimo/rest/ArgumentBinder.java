@@ -0,0 +1,154 @@
+package moe.seikimo.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import moe.seikimo.rest.annotations.params.Body;
+import moe.seikimo.rest.annotations.params.Header;
+import moe.seikimo.rest.annotations.params.Param;
+import moe.seikimo.rest.annotations.params.Query;
+
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.function.BiFunction;
+
+/**
+ * Binds the parameters of a handler method to values from a request.
+ * The binding plan is computed once, when the handler is registered.
+ */
+final class ArgumentBinder {
+    private final Argument[] arguments;
+
+    private ArgumentBinder(Argument[] arguments) {
+        this.arguments = arguments;
+    }
+
+    /**
+     * Creates a binder for the parameters of a method.
+     *
+     * @param method The handler method.
+     * @param gson The Gson instance to decode JSON parameters with.
+     * @return The binder.
+     * @throws IllegalArgumentException If a parameter cannot be bound.
+     */
+    static ArgumentBinder compile(Method method, Gson gson) {
+        var parameters = method.getParameters();
+        var arguments = new Argument[parameters.length];
+        for (var i = 0; i < parameters.length; i++) {
+            arguments[i] = ArgumentBinder.compile(method, parameters[i], gson);
+        }
+
+        return new ArgumentBinder(arguments);
+    }
+
+    /**
+     * Resolves the argument for a single parameter.
+     *
+     * @param method The handler method.
+     * @param parameter The parameter.
+     * @param gson The Gson instance to decode JSON parameters with.
+     * @return The argument.
+     */
+    private static Argument compile(Method method, Parameter parameter, Gson gson) {
+        var type = parameter.getType();
+        if (type == Request.class) {
+            return request -> request;
+        } else if (type == Context.class) {
+            return Request::handle;
+        }
+
+        if (parameter.isAnnotationPresent(Body.class)) {
+            if (type == String.class) {
+                return Request::body;
+            } else if (type == byte[].class) {
+                return Request::bodyAsBytes;
+            } else if (type == InputStream.class) {
+                return Request::bodyStream;
+            }
+
+            var generic = parameter.getParameterizedType();
+            return request -> request.body(generic);
+        }
+
+        var param = parameter.getAnnotation(Param.class);
+        if (param != null) {
+            return ArgumentBinder.value(parameter, param.value(), param.required(), gson,
+                    (ctx, name) -> ctx.pathParamMap().get(name));
+        }
+
+        var query = parameter.getAnnotation(Query.class);
+        if (query != null) {
+            return ArgumentBinder.value(parameter, query.value(), query.required(), gson,
+                    Context::queryParam);
+        }
+
+        var header = parameter.getAnnotation(Header.class);
+        if (header != null) {
+            return ArgumentBinder.value(parameter, header.value(), header.required(), gson,
+                    Context::header);
+        }
+
+        throw new IllegalArgumentException("Unable to bind parameter %s of %s."
+                .formatted(parameter.getName(), method.getName()));
+    }
+
+    /**
+     * Creates an argument which reads and converts a named value.
+     * Missing required values and malformed values are answered with a 400.
+     *
+     * @param parameter The parameter.
+     * @param name The name of the value.
+     * @param required Whether the value is required.
+     * @param gson The Gson instance to decode JSON values with.
+     * @param reader Reads the raw value from the request.
+     * @return The argument.
+     */
+    private static Argument value(
+            Parameter parameter, String name, boolean required, Gson gson,
+            BiFunction<Context, String, String> reader) {
+        var type = parameter.getType();
+        var converter = ParameterConverter.of(parameter.getParameterizedType(), gson);
+        var fallback = type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+
+        return request -> {
+            var value = reader.apply(request.handle(), name);
+            if (value != null) try {
+                return converter.convert(value);
+            } catch (NumberFormatException | JsonParseException ex) {
+                throw new BadRequestResponse("Parameter " + name + " is invalid.");
+            }
+
+            if (required) {
+                throw new BadRequestResponse("Parameter " + name + " does not exist.");
+            }
+            return fallback;
+        };
+    }
+
+    /**
+     * Binds the arguments for a request.
+     *
+     * @param request The request.
+     * @return The arguments to invoke the handler with.
+     */
+    Object[] bind(Request request) {
+        var values = new Object[this.arguments.length];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = this.arguments[i].resolve(request);
+        }
+        return values;
+    }
+
+    interface Argument {
+        /**
+         * Resolves the value of an argument.
+         *
+         * @param request The request.
+         * @return The value of the argument.
+         */
+        Object resolve(Request request);
+    }
+}
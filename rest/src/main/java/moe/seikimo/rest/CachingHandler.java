@@ -0,0 +1,181 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+import moe.seikimo.rest.annotations.Cached;
+import org.jetbrains.annotations.NotNull;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves responses of a {@link Cached} route from memory.
+ * Cached responses are looked up without locking; the least recently used response is evicted when full.
+ */
+final class CachingHandler implements Handler {
+    private final Handler delegate;
+    private final long ttl;
+    private final String[] headers;
+    private final String[] query;
+    private final String vary;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> order; // Guarded by the lock.
+
+    CachingHandler(Handler delegate, Cached cached) {
+        this.delegate = delegate;
+        this.ttl = cached.ttl();
+        this.headers = cached.headers();
+        this.query = cached.query();
+        this.vary = this.headers.length == 0 ? null : String.join(", ", this.headers);
+
+        var maxEntries = cached.maxEntries();
+        var entries = this.entries;
+        this.order = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (this.size() <= maxEntries) return false;
+
+                entries.remove(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void handle(@NotNull Context ctx) throws Exception {
+        if (ctx.method() != HandlerType.GET || Warmer.isWarmUp(ctx)) {
+            this.delegate.handle(ctx);
+            return;
+        }
+
+        var key = RequestKey.of(ctx, this.headers, this.query);
+        var now = System.currentTimeMillis();
+
+        // Serve the cached response.
+        var entry = this.entries.get(key);
+        if (entry != null && entry.expires() <= now) {
+            this.entries.remove(key, entry);
+            entry = null;
+        }
+        if (entry != null) {
+            this.touch(key);
+            this.vary(ctx);
+            ctx.header(Header.ETAG, entry.etag());
+            if (CachingHandler.matches(ctx.header(Header.IF_NONE_MATCH), entry.etag())) {
+                ctx.status(HttpStatus.NOT_MODIFIED);
+            } else {
+                entry.response().apply(ctx);
+            }
+            return;
+        }
+
+        this.delegate.handle(ctx);
+
+        // Cache the response if it can be copied.
+        if (ctx.statusCode() != HttpStatus.OK.getCode()) return;
+        var response = CapturedResponse.capture(ctx);
+        if (response == null) return;
+
+        var etag = CachingHandler.etag(response.body());
+        this.vary(ctx);
+        ctx.header(Header.ETAG, etag);
+        this.put(key, new Entry(response, etag, now + this.ttl));
+
+        // The client may already have the response which was just computed.
+        if (CachingHandler.matches(ctx.header(Header.IF_NONE_MATCH), etag)) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            ctx.result(new byte[0]);
+        }
+    }
+
+    /**
+     * Tells shared caches which request headers the response depends on.
+     *
+     * @param ctx The context of the request.
+     */
+    private void vary(Context ctx) {
+        if (this.vary != null) {
+            ctx.header(Header.VARY, this.vary);
+        }
+    }
+
+    /**
+     * Marks an entry as recently used.
+     * This is skipped while another request holds the lock, so hits never wait;
+     * the eviction order is approximate under contention.
+     *
+     * @param key The key of the entry.
+     */
+    private void touch(String key) {
+        if (!this.lock.tryLock()) return;
+        try {
+            this.order.get(key);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a response, evicting the least recently used one if the cache is full.
+     *
+     * @param key The key of the response.
+     * @param entry The entry of the response.
+     */
+    private void put(String key, Entry entry) {
+        this.lock.lock();
+        try {
+            this.entries.put(key, entry);
+            this.order.put(key, entry);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Checks an If-None-Match header against the entity tag of a response.
+     * Weak comparison is used, so {@code W/} prefixes are ignored.
+     *
+     * @param header The value of the header, or null.
+     * @param etag The entity tag of the response.
+     * @return Whether the client already has the response.
+     */
+    static boolean matches(String header, String etag) {
+        if (header == null) return false;
+
+        for (var tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param body The body of a response.
+     * @return The entity tag for the body.
+     */
+    private static String etag(byte[] body) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record Entry(CapturedResponse response, String etag, long expires) {}
+}
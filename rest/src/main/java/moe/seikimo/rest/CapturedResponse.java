@@ -0,0 +1,83 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A copy of a response which can be replayed to other requests.
+ *
+ * @param status The status code.
+ * @param contentType The content type, or null if it wasn't set.
+ * @param headers The other headers, in order.
+ * @param body The body.
+ */
+record CapturedResponse(int status, String contentType, List<Map.Entry<String, String>> headers, byte[] body) {
+    /**
+     * The headers which are never replayed.
+     * These describe a single response, belong to a single client, or are set by the cache itself.
+     */
+    private static final Set<String> EXCLUDED = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        EXCLUDED.addAll(List.of(Header.CONTENT_TYPE, Header.CONTENT_LENGTH, Header.TRANSFER_ENCODING,
+                Header.CONNECTION, Header.DATE, Header.SET_COOKIE, Header.ETAG));
+    }
+
+    /**
+     * Copies the response of a handled request.
+     * Responses which were written directly to the output stream, completed asynchronously,
+     * or were encoded for the specific client cannot be copied.
+     *
+     * @param ctx The context of the request.
+     * @return The captured response, or null if it can't be copied.
+     */
+    static CapturedResponse capture(Context ctx) {
+        var result = ctx.resultInputStream();
+        if (result == null || ctx.res().isCommitted() ||
+                ctx.res().containsHeader(Header.CONTENT_ENCODING)) {
+            return null;
+        }
+
+        var headers = new ArrayList<Map.Entry<String, String>>();
+        for (var name : new TreeSet<>(ctx.res().getHeaderNames())) {
+            if (EXCLUDED.contains(name)) continue;
+            for (var value : ctx.res().getHeaders(name)) {
+                headers.add(Map.entry(name, value));
+            }
+        }
+
+        try {
+            var body = result.readAllBytes();
+            ctx.result(body); // The original stream was consumed.
+
+            return new CapturedResponse(
+                    ctx.statusCode(), ctx.res().getContentType(), List.copyOf(headers), body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Replays this response to a request.
+     *
+     * @param ctx The context of the request.
+     */
+    void apply(Context ctx) {
+        ctx.status(this.status);
+        if (this.contentType != null) {
+            ctx.contentType(this.contentType);
+        }
+        for (var header : this.headers) {
+            ctx.res().addHeader(header.getKey(), header.getValue());
+        }
+        ctx.result(this.body);
+    }
+}
@@ -0,0 +1,126 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import moe.seikimo.rest.annotations.Coalesced;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares one invocation of a {@link Coalesced} route between identical concurrent requests.
+ * The first request invokes the handler; the others wait asynchronously for its response.
+ * When the response can't be copied, the waiting requests invoke the handler one at a time instead.
+ */
+final class CoalescingHandler implements Handler {
+    private final RequestHandler delegate;
+    private final String[] headers;
+    private final String[] query;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    CoalescingHandler(RequestHandler delegate, Coalesced coalesced) {
+        this.delegate = delegate;
+        this.headers = coalesced.headers();
+        this.query = coalesced.query();
+    }
+
+    @Override
+    public void handle(@NotNull Context ctx) {
+        if (ctx.method() != HandlerType.GET) {
+            this.delegate.handle(ctx);
+            return;
+        }
+
+        var key = RequestKey.of(ctx, this.headers, this.query);
+        var flight = new Flight();
+        var existing = this.flights.putIfAbsent(key, flight);
+
+        // Wait for the request which is already invoking the handler.
+        if (existing != null) {
+            ctx.future(() -> existing.response.thenCompose(response -> {
+                if (response != null) {
+                    response.apply(ctx);
+                    return CompletableFuture.completedFuture(null);
+                }
+
+                return existing.fallback(() -> this.delegate.dispatch(ctx));
+            }));
+            return;
+        }
+
+        CompletableFuture<?> pending = null;
+        try {
+            pending = this.delegate.dispatch(ctx);
+        } finally {
+            if (pending == null) {
+                this.land(key, flight, ctx);
+            } else {
+                // Capture the response before Javalin writes it.
+                var landed = pending.whenComplete((result, ex) -> this.land(key, flight, ctx));
+                ctx.future(() -> landed);
+            }
+        }
+    }
+
+    /**
+     * Shares the response with the waiting requests.
+     * New requests invoke the handler again from this point on.
+     *
+     * @param key The key of the request.
+     * @param flight The invocation which the waiting requests wait for.
+     * @param ctx The context of the request which invoked the handler.
+     */
+    private void land(String key, Flight flight, Context ctx) {
+        this.flights.remove(key, flight);
+
+        CapturedResponse response = null;
+        try {
+            response = CapturedResponse.capture(ctx);
+        } finally {
+            flight.response.complete(response);
+        }
+    }
+
+    /**
+     * An invocation of the handler, and the requests waiting for it.
+     */
+    private static final class Flight {
+        private final CompletableFuture<CapturedResponse> response = new CompletableFuture<>();
+        private final AtomicReference<CompletableFuture<?>> fallbacks =
+                new AtomicReference<>(CompletableFuture.completedFuture(null));
+
+        /**
+         * Invokes the handler for a waiting request, once the previous waiting request has been handled.
+         * This keeps uncopyable responses from releasing every waiting request into the handler at once.
+         *
+         * @param dispatch Invokes the handler, returning its pending result or null.
+         * @return A future which completes once the request has been handled.
+         */
+        private CompletableFuture<?> fallback(Supplier<CompletableFuture<?>> dispatch) {
+            var handled = new CompletableFuture<Void>();
+            var previous = this.fallbacks.getAndSet(handled);
+
+            return previous.thenCompose(ignored -> {
+                CompletableFuture<?> pending;
+                try {
+                    pending = dispatch.get();
+                } catch (RuntimeException | Error ex) {
+                    handled.complete(null);
+                    throw ex;
+                }
+
+                if (pending == null) {
+                    handled.complete(null);
+                } else {
+                    pending.whenComplete((result, ex) -> handled.complete(null));
+                }
+                return handled;
+            });
+        }
+    }
+}
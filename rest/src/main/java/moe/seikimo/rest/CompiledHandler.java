@@ -0,0 +1,29 @@
+package moe.seikimo.rest;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * The template of a compiled route handler.
+ * This class is never used directly; {@link RequestHandler} defines a hidden copy of it for every route,
+ * with the route's method handle as its class data.
+ * The handle is held in a static final field, so the JIT treats it as a constant and inlines the handler.
+ */
+final class CompiledHandler implements RequestHandler.Invoker {
+    private static final MethodHandle HANDLE;
+
+    static {
+        try {
+            HANDLE = MethodHandles.classData(MethodHandles.lookup(),
+                    ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    @Override
+    public Object invoke(Request request, Object[] arguments) throws Throwable {
+        return (Object) HANDLE.invokeExact(request, arguments);
+    }
+}
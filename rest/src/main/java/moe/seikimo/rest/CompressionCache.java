@@ -0,0 +1,113 @@
+package moe.seikimo.rest;
+
+import io.javalin.compression.Compressor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds response bodies which were already compressed.
+ * Bodies are keyed by a hash of their content, so identical bodies are compressed once.
+ */
+public final class CompressionCache {
+    private final List<Compressor> compressors;
+    private final Map<Key, byte[]> entries;
+
+    /**
+     * @param compressors The compressors, in order of preference.
+     * @param maxEntries The maximum amount of compressed bodies to keep.
+     */
+    public CompressionCache(List<Compressor> compressors, int maxEntries) {
+        this.compressors = compressors;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                return this.size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Selects the preferred compressor which the client accepts.
+     *
+     * @param acceptEncoding The value of the {@code Accept-Encoding} header.
+     * @return The compressor, or null if none are accepted.
+     */
+    public Compressor negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) return null;
+
+        var accepted = acceptEncoding.split(",");
+        for (var compressor : this.compressors) {
+            for (var encoding : accepted) {
+                var parts = encoding.split(";");
+                if (!parts[0].trim().equalsIgnoreCase(compressor.encoding())) continue;
+
+                // Encodings with a quality of zero are refused.
+                if (parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?")) continue;
+                return compressor;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Fetches the compressed form of a body.
+     * The body is compressed and stored if it isn't cached.
+     *
+     * @param compressor The compressor to use.
+     * @param body The uncompressed body.
+     * @return The compressed body.
+     */
+    public byte[] compress(Compressor compressor, byte[] body) {
+        var key = new Key(compressor.encoding(), CompressionCache.hash(body));
+        synchronized (this.entries) {
+            var cached = this.entries.get(key);
+            if (cached != null) return cached;
+        }
+
+        // Compress outside the lock; racing threads produce the same bytes.
+        var buffer = new ByteArrayOutputStream(body.length / 2);
+        try (var stream = compressor.compress(buffer)) {
+            stream.write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        var compressed = buffer.toByteArray();
+        synchronized (this.entries) {
+            this.entries.put(key, compressed);
+        }
+        return compressed;
+    }
+
+    /**
+     * @return The amount of cached bodies.
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * @param body The body to hash.
+     * @return The SHA-256 hash of the body.
+     */
+    private static ByteBuffer hash(byte[] body) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record Key(String encoding, ByteBuffer hash) {}
+}
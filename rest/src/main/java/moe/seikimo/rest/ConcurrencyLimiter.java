@@ -0,0 +1,138 @@
+package moe.seikimo.rest;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of handlers which run at the same time.
+ * Requests over the limit wait in a queue until a permit is free, or the timeout passes.
+ */
+public final class ConcurrencyLimiter {
+    private final int limit;
+    private final long timeout;
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger peakWaiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+
+    /**
+     * @param limit The maximum amount of concurrent handlers.
+     * @param timeout The maximum time to wait for a permit, in milliseconds.
+     */
+    public ConcurrencyLimiter(int limit, long timeout) {
+        this.limit = limit;
+        this.timeout = timeout;
+        this.permits = new Semaphore(limit, true);
+    }
+
+    /**
+     * Attempts to acquire a permit.
+     * If this returns true, {@link #release()} must be called afterward.
+     *
+     * @return Whether a permit was acquired.
+     */
+    public boolean acquire() {
+        try {
+            // Fast path: a permit is free, and no request is queued for it.
+            // Unlike tryAcquire(), a timed acquire respects fairness, so it never jumps the queue.
+            if (this.permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                this.admitted.increment();
+                return true;
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+            this.rejected.increment();
+            return false;
+        }
+
+        // Slow path: wait in the queue.
+        this.queued.increment();
+        var waiting = this.waiting.incrementAndGet();
+        this.peakWaiting.accumulateAndGet(waiting, Math::max);
+
+        var start = System.nanoTime();
+        try {
+            if (this.permits.tryAcquire(this.timeout, TimeUnit.MILLISECONDS)) {
+                this.admitted.increment();
+                return true;
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.waiting.decrementAndGet();
+            this.waitTime.add(System.nanoTime() - start);
+        }
+
+        this.rejected.increment();
+        return false;
+    }
+
+    /**
+     * Releases a permit.
+     */
+    public void release() {
+        this.permits.release();
+    }
+
+    /**
+     * @return The maximum amount of concurrent handlers.
+     */
+    public int limit() {
+        return this.limit;
+    }
+
+    /**
+     * @return The amount of handlers currently running.
+     */
+    public int active() {
+        return this.limit - this.permits.availablePermits();
+    }
+
+    /**
+     * @return The amount of requests currently waiting for a permit.
+     */
+    public int waiting() {
+        return this.waiting.get();
+    }
+
+    /**
+     * @return The highest amount of requests which were waiting at once.
+     */
+    public int peakWaiting() {
+        return this.peakWaiting.get();
+    }
+
+    /**
+     * @return The total amount of requests which were given a permit.
+     */
+    public long admitted() {
+        return this.admitted.sum();
+    }
+
+    /**
+     * @return The total amount of requests which had to wait for a permit.
+     */
+    public long queued() {
+        return this.queued.sum();
+    }
+
+    /**
+     * @return The total amount of requests which timed out waiting for a permit.
+     */
+    public long rejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * @return The total time spent waiting for permits, in nanoseconds.
+     */
+    public long waitTime() {
+        return this.waitTime.sum();
+    }
+}
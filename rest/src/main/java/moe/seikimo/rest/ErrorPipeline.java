@@ -0,0 +1,148 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import io.javalin.http.HttpResponseException;
+import io.javalin.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns exceptions thrown by route handlers into responses.
+ * Exceptions are first given to registered exception handlers.
+ * Unhandled exceptions are logged (rate-limited) and answered with a 500.
+ */
+@Slf4j
+public final class ErrorPipeline {
+    private static final byte[] COMPACT_BODY
+            = "Internal Server Error".getBytes(StandardCharsets.UTF_8);
+
+    private final boolean production;
+    private final int logLimit;
+
+    private final Map<Class<?>, ExceptionMapper> mappers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Optional<ExceptionMapper>> resolved = new ConcurrentHashMap<>();
+
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicInteger logged = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @param production Whether to respond with a compact body instead of exception details.
+     * @param logLimit The maximum amount of exceptions to log per second; 0 logs every exception.
+     */
+    public ErrorPipeline(boolean production, int logLimit) {
+        this.production = production;
+        this.logLimit = logLimit;
+    }
+
+    /**
+     * Registers an exception handler.
+     *
+     * @param type The type of exception to handle.
+     * @param mapper The exception handler.
+     * @throws IllegalArgumentException If the handler can't accept every exception of the type.
+     */
+    void register(Class<? extends Throwable> type, ExceptionMapper mapper) {
+        mapper.validate(type);
+        this.mappers.put(type, mapper);
+        this.resolved.clear();
+    }
+
+    /**
+     * Creates the response for an exception.
+     *
+     * @param context The context of the request.
+     * @param exception The exception thrown by the route handler.
+     * @return The result to apply to the response, or null if the response was already set.
+     */
+    Object handle(Context context, Throwable exception) {
+        var mapper = this.resolve(exception.getClass());
+        if (mapper != null) try {
+            log.debug("Handling exception with an exception handler.", exception);
+            return mapper.handle(new Request(context), exception);
+        } catch (Throwable ex) {
+            exception = ex;
+        }
+
+        // Exceptions which describe a response are expected, and not logged.
+        if (exception instanceof HttpResponseException response) {
+            context.status(response.getStatus()).result(response.getMessage());
+            return null;
+        }
+
+        this.log(exception);
+        context.status(HttpStatus.INTERNAL_SERVER_ERROR);
+
+        if (this.production) {
+            context.result(COMPACT_BODY);
+        } else if (exception instanceof IllegalArgumentException) {
+            context.result(String.valueOf(exception.getMessage()));
+        } else {
+            var builder = new StringBuilder();
+            for (var element : exception.getStackTrace()) {
+                if (!builder.isEmpty()) builder.append('\n');
+                builder.append(element);
+            }
+            context.result(builder.toString());
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the exception handler for a type of exception.
+     * Handlers for superclasses apply to subclasses.
+     *
+     * @param type The type of exception.
+     * @return The exception handler, or null if there is none.
+     */
+    private ExceptionMapper resolve(Class<?> type) {
+        if (this.mappers.isEmpty()) return null;
+
+        return this.resolved.computeIfAbsent(type, key -> {
+            for (var clazz = key; clazz != null; clazz = clazz.getSuperclass()) {
+                var mapper = this.mappers.get(clazz);
+                if (mapper != null) return Optional.of(mapper);
+            }
+            return Optional.empty();
+        }).orElse(null);
+    }
+
+    /**
+     * Logs an unhandled exception.
+     * Once the limit is reached, exceptions are only counted until the next second.
+     *
+     * @param exception The exception.
+     */
+    private void log(Throwable exception) {
+        if (this.logLimit <= 0) {
+            log.warn("Exception encountered while trying to invoke handler.", exception);
+            return;
+        }
+
+        // Start a new window every second.
+        var now = System.currentTimeMillis() / 1000;
+        var window = this.window.get();
+        if (window != now && this.window.compareAndSet(window, now)) {
+            this.logged.set(0);
+
+            var suppressed = this.suppressed.sumThenReset();
+            if (suppressed > 0) {
+                log.warn("Suppressed {} handler exceptions over the logging limit.", suppressed);
+            }
+        }
+
+        if (this.logged.incrementAndGet() <= this.logLimit) {
+            log.warn("Exception encountered while trying to invoke handler.", exception);
+        } else {
+            this.suppressed.increment();
+        }
+    }
+}
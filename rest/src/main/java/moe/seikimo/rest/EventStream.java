@@ -0,0 +1,363 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+import io.javalin.http.sse.SseClient;
+import io.javalin.util.ConcurrencyUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A response which pushes items from a publisher to the client as they are published.
+ * Connections are held asynchronously, so idle subscribers don't hold a thread.
+ * A {@link java.util.concurrent.SubmissionPublisher} can be shared by every subscriber of a route.
+ * <p>
+ * Items are queued per client and written on separate threads, so a slow client never blocks the publisher;
+ * clients which fall too far behind are disconnected.
+ * Publish with {@link java.util.concurrent.SubmissionPublisher#offer(Object, java.util.function.BiPredicate)}
+ * and a drop handler, rather than {@code submit}, so the producer never blocks either.
+ * <p>
+ * This must be returned synchronously from a route handler.
+ * The standalone engine buffers whole responses, so it answers streams with a 501.
+ */
+@Slf4j
+public final class EventStream {
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    /**
+     * The threads which write to clients; a thread is only used while a client has queued items.
+     * Without virtual threads, the pool is bounded by the amount of processors,
+     * so a broadcast to many slow clients queues their writes instead of starting a thread for each.
+     */
+    private static final Executor WRITERS = ConcurrencyUtil.isLoomAvailable() ?
+            ConcurrencyUtil.executorService("magix-rest-stream", true) :
+            EventStream.writers(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Creates a stream of server-sent events.
+     * Strings are sent as they are, and other items are sent as JSON.
+     * Use {@link Event} to send named events.
+     *
+     * @param publisher The publisher of the events.
+     * @return The response.
+     */
+    public static EventStream events(Flow.Publisher<?> publisher) {
+        return new EventStream(publisher, null);
+    }
+
+    /**
+     * Creates a chunked response, which writes each item as one chunk.
+     * Strings and byte arrays are written as they are, and other items as newline-delimited JSON.
+     *
+     * @param publisher The publisher of the items.
+     * @return The response.
+     */
+    public static EventStream chunked(Flow.Publisher<?> publisher) {
+        return EventStream.chunked(publisher, "application/x-ndjson");
+    }
+
+    /**
+     * Creates a chunked response, which writes each item as one chunk.
+     * Strings and byte arrays are written as they are, and other items as newline-delimited JSON.
+     *
+     * @param publisher The publisher of the items.
+     * @param contentType The content type of the response.
+     * @return The response.
+     */
+    public static EventStream chunked(Flow.Publisher<?> publisher, String contentType) {
+        return new EventStream(publisher, contentType);
+    }
+
+    /**
+     * Creates a bounded pool of platform threads, whose threads stop when idle.
+     *
+     * @param threads The largest amount of threads.
+     * @return The pool.
+     */
+    private static Executor writers(int threads) {
+        var executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    var thread = new Thread(runnable, "magix-rest-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private final Flow.Publisher<?> publisher;
+    private final String contentType;
+
+    private EventStream(Flow.Publisher<?> publisher, String contentType) {
+        this.publisher = publisher;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Starts streaming to the client.
+     *
+     * @param ctx The context of the request.
+     */
+    public void apply(Context ctx) {
+        try {
+            if (this.contentType == null) {
+                this.events(ctx);
+            } else {
+                this.chunked(ctx);
+            }
+        } catch (IOException ex) {
+            log.debug("Unable to start streaming to the client.", ex);
+        }
+    }
+
+    /**
+     * Streams server-sent events.
+     *
+     * @param ctx The context of the request.
+     */
+    private void events(Context ctx) throws IOException {
+        var response = ctx.res();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(EVENT_STREAM);
+        response.addHeader(Header.CACHE_CONTROL, "no-cache");
+        response.addHeader(Header.X_ACCEL_BUFFERING, "no");
+        response.flushBuffer();
+
+        var client = new SseClient(ctx);
+        client.keepAlive();
+        this.publisher.subscribe(new EventSubscriber(client, Response.config(ctx).getStreamBuffer()));
+    }
+
+    /**
+     * Streams chunks.
+     * The output is written directly, since compressed streams buffer chunks.
+     *
+     * @param ctx The context of the request.
+     */
+    private void chunked(Context ctx) throws IOException {
+        var response = ctx.res();
+        response.setContentType(this.contentType);
+        response.addHeader(Header.CACHE_CONTROL, "no-cache");
+        response.addHeader(Header.X_ACCEL_BUFFERING, "no");
+        response.flushBuffer();
+
+        var done = new CompletableFuture<Void>();
+        ctx.future(() -> done);
+        this.publisher.subscribe(new ChunkSubscriber(
+                response.getOutputStream(), Response.config(ctx), done));
+    }
+
+    /**
+     * A named server-sent event.
+     *
+     * @param event The name of the event.
+     * @param data The data of the event; strings are sent as they are, and other objects as JSON.
+     * @param id The ID of the event, or null.
+     */
+    public record Event(String event, Object data, String id) {
+        public Event(String event, Object data) {
+            this(event, data, null);
+        }
+    }
+
+    /**
+     * Queues published items for a client, and writes them on a writer thread.
+     * Items are requested as fast as they are published, so a slow client never blocks the publisher;
+     * a client which falls more than {@link RestConfiguration#getStreamBuffer()} items behind is disconnected.
+     */
+    private abstract static class QueuedSubscriber implements Flow.Subscriber<Object> {
+        private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final int capacity;
+
+        private Flow.Subscription subscription;
+        private volatile boolean completed, dropped;
+        private boolean terminated;
+
+        private QueuedSubscriber(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Writes an item to the client.
+         * This is called on a writer thread, one item at a time.
+         *
+         * @param item The item.
+         * @return Whether the client can receive more items.
+         */
+        protected abstract boolean write(Object item);
+
+        /**
+         * Ends the response.
+         * This is called on a writer thread, once.
+         */
+        protected abstract void close();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Object item) {
+            if (this.completed) return;
+
+            if (this.queued.incrementAndGet() > this.capacity) {
+                log.debug("Disconnecting a client which is {} items behind.", this.capacity);
+                this.dropped = true;
+                this.cancel();
+            } else {
+                this.queue.add(item);
+            }
+            this.schedule();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.debug("Stream publisher failed.", throwable);
+            this.completed = true;
+            this.schedule();
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+            this.schedule();
+        }
+
+        /**
+         * Stops receiving items; queued items are discarded.
+         */
+        protected void cancel() {
+            this.completed = true;
+            this.dropped = true;
+            this.subscription.cancel();
+            this.schedule();
+        }
+
+        /**
+         * Writes the queued items on a writer thread, unless one is already writing.
+         */
+        private void schedule() {
+            if (this.pending.getAndIncrement() == 0) {
+                WRITERS.execute(this::drain);
+            }
+        }
+
+        /**
+         * Writes queued items until the queue is empty.
+         */
+        private void drain() {
+            var missed = 1;
+            do {
+                Object item;
+                while (!this.terminated && !this.dropped && (item = this.queue.poll()) != null) {
+                    this.queued.decrementAndGet();
+                    if (!this.write(item)) {
+                        this.dropped = true;
+                        this.subscription.cancel();
+                    }
+                }
+
+                if (!this.terminated && (this.dropped || (this.completed && this.queue.isEmpty()))) {
+                    this.terminated = true;
+                    this.queue.clear();
+                    this.close();
+                }
+                missed = this.pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    /**
+     * Sends published items as server-sent events.
+     */
+    private static final class EventSubscriber extends QueuedSubscriber {
+        private final SseClient client;
+
+        private EventSubscriber(SseClient client, int capacity) {
+            super(capacity);
+            this.client = client;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            super.onSubscribe(subscription);
+            this.client.onClose(this::cancel);
+        }
+
+        @Override
+        protected boolean write(Object item) {
+            if (item instanceof Event event) {
+                this.client.sendEvent(event.event(), event.data(), event.id());
+            } else {
+                this.client.sendEvent(item);
+            }
+
+            // The client closes itself when a write fails.
+            return !this.client.terminated();
+        }
+
+        @Override
+        protected void close() {
+            this.client.close();
+        }
+    }
+
+    /**
+     * Writes published items as chunks.
+     */
+    private static final class ChunkSubscriber extends QueuedSubscriber {
+        private static final byte[] NEWLINE = {'\n'};
+
+        private final OutputStream output;
+        private final RestConfiguration config;
+        private final CompletableFuture<Void> done;
+
+        private ChunkSubscriber(OutputStream output, RestConfiguration config, CompletableFuture<Void> done) {
+            super(config.getStreamBuffer());
+            this.output = output;
+            this.config = config;
+            this.done = done;
+        }
+
+        @Override
+        protected boolean write(Object item) {
+            try {
+                if (item instanceof byte[] bytes) {
+                    this.output.write(bytes);
+                } else if (item instanceof String string) {
+                    this.output.write(string.getBytes(StandardCharsets.UTF_8));
+                } else {
+                    this.output.write(this.config.getGson().toJson(item)
+                            .getBytes(StandardCharsets.UTF_8));
+                    this.output.write(NEWLINE);
+                }
+                this.output.flush();
+                return true;
+            } catch (IOException ex) {
+                // The client disconnected.
+                return false;
+            }
+        }
+
+        @Override
+        protected void close() {
+            this.done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package moe.seikimo.rest;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+
+/**
+ * Invokes an {@link moe.seikimo.rest.annotations.ExceptionHandler} method.
+ */
+final class ExceptionMapper {
+    private static final MethodType TYPE
+            = MethodType.methodType(Object.class, Request.class, Throwable.class);
+
+    private final String name;
+    private final Class<?>[] exceptions;
+    private final MethodHandle invoker;
+
+    /**
+     * @param instance The instance to invoke the method on.
+     * @param method The exception handler method.
+     * @throws IllegalArgumentException If the method has unsupported parameters.
+     */
+    ExceptionMapper(Object instance, Method method) {
+        this.name = method.getName();
+        try {
+            var handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(instance);
+            }
+
+            // Map each parameter to either the request or the exception.
+            var parameters = method.getParameterTypes();
+            var exceptions = new ArrayList<Class<?>>();
+            var types = new Class<?>[parameters.length];
+            var order = new int[parameters.length];
+            for (var i = 0; i < parameters.length; i++) {
+                if (parameters[i] == Request.class) {
+                    types[i] = Request.class;
+                    order[i] = 0;
+                } else if (Throwable.class.isAssignableFrom(parameters[i])) {
+                    types[i] = Throwable.class;
+                    order[i] = 1;
+                    exceptions.add(parameters[i]);
+                } else {
+                    throw new IllegalArgumentException("Unable to bind parameter %d of %s."
+                            .formatted(i, method.getName()));
+                }
+            }
+
+            this.exceptions = exceptions.toArray(Class<?>[]::new);
+            this.invoker = MethodHandles.permuteArguments(
+                    handle.asType(MethodType.methodType(Object.class, types)),
+                    TYPE, order);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException(
+                    "Unable to access exception handler: " + method.getName(), ex);
+        }
+    }
+
+    /**
+     * Checks that the exception handler can be registered for a type of exception.
+     *
+     * @param type The type of exception.
+     * @throws IllegalArgumentException If a parameter of the handler is narrower than the type.
+     */
+    void validate(Class<? extends Throwable> type) {
+        for (var exception : this.exceptions) {
+            if (!exception.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Exception handler %s accepts %s, so it can't handle %s."
+                        .formatted(this.name, exception.getName(), type.getName()));
+            }
+        }
+    }
+
+    /**
+     * Invokes the exception handler.
+     *
+     * @param request The request which failed.
+     * @param exception The exception thrown by the route handler.
+     * @return The result of the exception handler.
+     */
+    Object handle(Request request, Throwable exception) throws Throwable {
+        return (Object) this.invoker.invokeExact(request, exception);
+    }
+}
@@ -0,0 +1,234 @@
+package moe.seikimo.rest;
+
+import lombok.extern.slf4j.Slf4j;
+import moe.seikimo.rest.annotations.Component;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Constructs the singletons of an application.
+ * Constructor parameters are resolved to registered components or {@link Component} classes when the graph is built,
+ * so missing and circular dependencies are reported before anything is constructed.
+ * Each component is constructed once its dependencies are, so independent components are constructed in parallel.
+ */
+@Slf4j
+final class Injector {
+    private final Map<Class<?>, Supplier<?>> providers;
+    private final Map<Class<?>, Node> nodes = new HashMap<>();
+    private final Map<Class<?>, Object> instances = new ConcurrentHashMap<>();
+
+    /**
+     * @param providers The registered components, by the type they are injected as.
+     */
+    Injector(Map<Class<?>, Supplier<?>> providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * Constructs the given classes, and everything they depend on.
+     * Every registered component is constructed too, even if nothing depends on it.
+     * Classes with missing or circular dependencies, or which fail to construct, are logged and skipped;
+     * so are the classes which depend on them.
+     *
+     * @param roots The classes to construct.
+     * @param executor The executor to construct components on.
+     */
+    void start(Collection<Class<?>> roots, Executor executor) {
+        var all = new LinkedHashSet<Class<?>>(roots);
+        all.addAll(this.providers.keySet());
+
+        var order = new ArrayList<Node>();
+        for (var root : all) try {
+            this.resolve(root, new LinkedHashSet<>(), order);
+        } catch (IllegalStateException ex) {
+            log.warn("Failed to resolve dependencies for class: {}", root.getName(), ex);
+        }
+
+        // Nodes are ordered after their dependencies, so each can chain onto theirs.
+        for (var node : order) {
+            node.future = node.start(executor);
+        }
+
+        for (var node : order) try {
+            this.instances.put(node.type, node.future.join());
+        } catch (CompletionException ex) {
+            log.warn("Failed to create instance for class: {}", node.type.getName(), ex.getCause());
+        }
+    }
+
+    /**
+     * @param type The type of the component.
+     * @return The constructed component, or null if it wasn't constructed.
+     */
+    Object get(Class<?> type) {
+        return this.instances.get(type);
+    }
+
+    /**
+     * Resolves the node for a type, and the nodes it depends on.
+     *
+     * @param type The type to resolve.
+     * @param path The types being resolved, to detect cycles.
+     * @param order The resolved nodes, in dependency order.
+     * @return The node.
+     */
+    private Node resolve(Class<?> type, Set<Class<?>> path, List<Node> order) {
+        var existing = this.nodes.get(type);
+        if (existing != null) return existing;
+
+        if (!path.add(type)) {
+            var cycle = new StringBuilder();
+            for (var element : path) {
+                if (!cycle.isEmpty() || element == type) {
+                    cycle.append(element.getSimpleName()).append(" -> ");
+                }
+            }
+            throw new IllegalStateException("Circular dependency: " + cycle + type.getSimpleName());
+        }
+
+        Node node;
+        var provider = this.providers.get(type);
+        if (provider != null) {
+            node = new Node(type, provider, null, List.of());
+        } else {
+            var constructor = Injector.constructor(type);
+            var dependencies = new ArrayList<Node>();
+            for (var parameter : constructor.getParameterTypes()) {
+                var dependency = this.dependency(parameter, type);
+                dependencies.add(this.resolve(dependency, path, order));
+            }
+            node = new Node(type, null, constructor, dependencies);
+        }
+
+        path.remove(type);
+        this.nodes.put(type, node);
+        order.add(node);
+        return node;
+    }
+
+    /**
+     * Finds the component to inject into a parameter.
+     *
+     * @param parameter The type of the parameter.
+     * @param owner The class which declares the parameter.
+     * @return The type of the component.
+     */
+    private Class<?> dependency(Class<?> parameter, Class<?> owner) {
+        if (this.providers.containsKey(parameter)) {
+            return parameter;
+        }
+
+        // Registered components can be injected as any of their supertypes.
+        Class<?> match = null;
+        for (var type : this.providers.keySet()) {
+            if (!parameter.isAssignableFrom(type)) continue;
+            if (match != null) {
+                throw new IllegalStateException("Multiple components of type %s for %s: %s, %s"
+                        .formatted(parameter.getName(), owner.getName(), match.getName(), type.getName()));
+            }
+            match = type;
+        }
+        if (match != null) return match;
+
+        if (parameter.isAnnotationPresent(Component.class)) {
+            return parameter;
+        }
+
+        throw new IllegalStateException("No component of type %s for %s."
+                .formatted(parameter.getName(), owner.getName()));
+    }
+
+    /**
+     * Finds the constructor to inject.
+     * This is the only public constructor, or the public no-argument constructor.
+     *
+     * @param type The class to construct.
+     * @return The constructor.
+     */
+    private static Constructor<?> constructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalStateException("Unable to construct abstract class: " + type.getName());
+        }
+
+        var constructors = type.getConstructors();
+        if (constructors.length == 1) {
+            return constructors[0];
+        }
+
+        for (var constructor : constructors) {
+            if (constructor.getParameterCount() == 0) return constructor;
+        }
+
+        throw new IllegalStateException(constructors.length == 0 ?
+                "No public constructor for class: " + type.getName() :
+                "Multiple public constructors for class: " + type.getName());
+    }
+
+    /**
+     * A component, and the components it depends on.
+     */
+    private static final class Node {
+        private final Class<?> type;
+        private final Supplier<?> provider;
+        private final Constructor<?> constructor;
+        private final List<Node> dependencies;
+        private CompletableFuture<Object> future;
+
+        private Node(Class<?> type, Supplier<?> provider, Constructor<?> constructor, List<Node> dependencies) {
+            this.type = type;
+            this.provider = provider;
+            this.constructor = constructor;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * Constructs the component once its dependencies are constructed.
+         *
+         * @param executor The executor to construct the component on.
+         * @return The component.
+         */
+        private CompletableFuture<Object> start(Executor executor) {
+            var futures = new CompletableFuture<?>[this.dependencies.size()];
+            for (var i = 0; i < futures.length; i++) {
+                futures[i] = this.dependencies.get(i).future;
+            }
+
+            return CompletableFuture.allOf(futures).thenApplyAsync(ignored -> {
+                if (this.provider != null) {
+                    var instance = this.provider.get();
+                    if (instance == null) {
+                        throw new IllegalStateException("The component provider returned null.");
+                    }
+                    return this.type.cast(instance);
+                }
+
+                var arguments = new Object[futures.length];
+                for (var i = 0; i < arguments.length; i++) {
+                    arguments[i] = futures[i].join();
+                }
+
+                try {
+                    return this.constructor.newInstance(arguments);
+                } catch (InvocationTargetException ex) {
+                    throw new CompletionException(ex.getCause());
+                } catch (ReflectiveOperationException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor);
+        }
+    }
+}
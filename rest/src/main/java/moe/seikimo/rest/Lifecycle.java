@@ -0,0 +1,119 @@
+package moe.seikimo.rest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tracks the state of the application and the requests in flight.
+ * The application becomes ready once it has warmed up, and stops being ready once it starts draining.
+ * Requests which arrive while draining are rejected, so the requests in flight can complete.
+ */
+public final class Lifecycle {
+    private static final long POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final LongAdder inFlight = new LongAdder();
+    private volatile State state = State.STARTING;
+
+    /**
+     * Attempts to admit a request.
+     * If this returns true, {@link #exit()} must be called afterward.
+     *
+     * @return Whether the request was admitted.
+     */
+    boolean enter() {
+        // Count the request first, so a drain which starts concurrently waits for it.
+        this.inFlight.increment();
+        if (this.state.accepting) return true;
+
+        this.inFlight.decrement();
+        return false;
+    }
+
+    /**
+     * Releases an admitted request.
+     */
+    void exit() {
+        this.inFlight.decrement();
+    }
+
+    /**
+     * Marks the application as ready, unless it is already stopping.
+     */
+    synchronized void ready() {
+        if (this.state == State.STARTING) {
+            this.state = State.READY;
+        }
+    }
+
+    /**
+     * Starts draining; new requests are rejected from now on.
+     *
+     * @return Whether this call started the drain; false if the application was already stopping.
+     */
+    synchronized boolean drain() {
+        if (!this.state.accepting) return false;
+
+        this.state = State.DRAINING;
+        return true;
+    }
+
+    /**
+     * Marks the application as stopped.
+     */
+    synchronized void stopped() {
+        this.state = State.STOPPED;
+    }
+
+    /**
+     * Waits for the requests in flight to complete.
+     *
+     * @param timeout The maximum time to wait, in milliseconds.
+     * @return Whether every request completed before the timeout.
+     */
+    boolean await(long timeout) {
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (this.inFlight.sum() > 0) {
+            if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(POLL_INTERVAL);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The current state of the application.
+     */
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * @return Whether the application is ready to receive traffic.
+     */
+    public boolean isReady() {
+        return this.state == State.READY;
+    }
+
+    /**
+     * @return The amount of requests currently in flight.
+     */
+    public long inFlight() {
+        return this.inFlight.sum();
+    }
+
+    public enum State {
+        STARTING(true), // Warming up; requests are served, but the application isn't ready.
+        READY(true), // Serving traffic.
+        DRAINING(false), // Waiting for requests in flight; new requests are rejected.
+        STOPPED(false); // The server is stopped.
+
+        private final boolean accepting;
+
+        State(boolean accepting) {
+            this.accepting = accepting;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package moe.seikimo.rest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of handlers which run at the same time, adapting the bound to their latency.
+ * When the average latency rises above the target, the limit shrinks in proportion.
+ * When it is below the target and the limit was reached, the limit grows by one.
+ * Requests over the limit are rejected immediately instead of waiting.
+ */
+public final class LoadShedder {
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long target;
+    private final int minLimit, maxLimit;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong window = new AtomicLong(System.nanoTime());
+    private volatile boolean saturated;
+
+    private final LongAdder latency = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    /**
+     * @param target The target average latency, in milliseconds.
+     * @param minLimit The lowest the limit can shrink to.
+     * @param maxLimit The highest the limit can grow to; this is also the starting limit.
+     */
+    public LoadShedder(long target, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("The limits must be positive, and the minimum can't exceed the maximum.");
+        }
+
+        this.target = TimeUnit.MILLISECONDS.toNanos(target);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = new AtomicInteger(maxLimit);
+    }
+
+    /**
+     * Attempts to admit a request.
+     * If this returns true, {@link #release(long)} must be called afterward.
+     *
+     * @return Whether the request was admitted.
+     */
+    public boolean acquire() {
+        var limit = this.limit.get();
+        var current = this.inFlight.incrementAndGet();
+        if (current > limit) {
+            this.inFlight.decrementAndGet();
+            this.saturated = true;
+            this.shed.increment();
+            return false;
+        }
+
+        if (current == limit) this.saturated = true;
+        this.admitted.increment();
+        return true;
+    }
+
+    /**
+     * Releases an admitted request.
+     *
+     * @param duration The time the request took, in nanoseconds.
+     */
+    public void release(long duration) {
+        this.inFlight.decrementAndGet();
+        this.latency.add(duration);
+        this.samples.increment();
+
+        // Only one thread adjusts the limit per window.
+        var now = System.nanoTime();
+        var start = this.window.get();
+        if (now - start >= WINDOW && this.window.compareAndSet(start, now)) {
+            this.adjust();
+        }
+    }
+
+    /**
+     * Adjusts the limit to the latency of the last window.
+     */
+    private void adjust() {
+        var samples = this.samples.sumThenReset();
+        var latency = this.latency.sumThenReset();
+        var saturated = this.saturated;
+        this.saturated = false;
+        if (samples == 0) return;
+
+        var average = latency / samples;
+        var limit = this.limit.get();
+        if (average > this.target) {
+            // Shrink in proportion to the overshoot, by at most half.
+            var ratio = Math.max(0.5, (double) this.target / average);
+            this.limit.set(Math.max(this.minLimit, Math.min(limit - 1, (int) (limit * ratio))));
+        } else if (saturated && limit < this.maxLimit) {
+            this.limit.set(limit + 1);
+        }
+    }
+
+    /**
+     * @return The current limit.
+     */
+    public int limit() {
+        return this.limit.get();
+    }
+
+    /**
+     * @return The amount of requests currently admitted.
+     */
+    public int inFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * @return The total amount of requests which were admitted.
+     */
+    public long admitted() {
+        return this.admitted.sum();
+    }
+
+    /**
+     * @return The total amount of requests which were rejected.
+     */
+    public long shed() {
+        return this.shed.sum();
+    }
+}
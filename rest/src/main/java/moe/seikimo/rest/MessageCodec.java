@@ -0,0 +1,141 @@
+package moe.seikimo.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the messages of a {@link moe.seikimo.rest.annotations.WebSocket} route.
+ */
+final class MessageCodec {
+    private final Gson gson;
+    private final Class<?>[] types;
+    private final Map<String, Class<?>> byName = new HashMap<>();
+    private final Map<Class<?>, Integer> byType = new HashMap<>();
+
+    /**
+     * @param gson The Gson instance to encode with.
+     * @param types The types of messages; a type's index is its binary ID.
+     */
+    MessageCodec(Gson gson, Class<?>[] types) {
+        if (types.length > 0xFFFF) {
+            throw new IllegalArgumentException("A socket can have at most 65535 types of messages.");
+        }
+
+        this.gson = gson;
+        this.types = types;
+        for (var i = 0; i < types.length; i++) {
+            if (this.byName.put(types[i].getSimpleName(), types[i]) != null) {
+                throw new IllegalArgumentException("Duplicate message name: " + types[i].getSimpleName());
+            }
+            this.byType.put(types[i], i);
+        }
+    }
+
+    /**
+     * Decodes a text frame.
+     *
+     * @param text The frame.
+     * @return The message.
+     * @throws IllegalArgumentException If the frame is not a known message.
+     */
+    Object decode(String text) {
+        try {
+            var envelope = this.gson.fromJson(text, JsonObject.class);
+            var name = envelope == null ? null : envelope.get("type");
+            var type = name == null ? null : this.byName.get(name.getAsString());
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown message type.");
+            }
+
+            return MessageCodec.require(this.gson.fromJson(envelope.get("data"), type));
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException ex) {
+            throw new IllegalArgumentException("Invalid message.", ex);
+        }
+    }
+
+    /**
+     * Decodes a binary frame while it is read.
+     *
+     * @param data The buffer containing the frame.
+     * @param offset The start of the frame.
+     * @param length The length of the frame.
+     * @return The message.
+     * @throws IllegalArgumentException If the frame is not a known message.
+     */
+    Object decode(byte[] data, int offset, int length) {
+        if (length < 2) {
+            throw new IllegalArgumentException("Invalid message.");
+        }
+
+        var id = ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+        if (id >= this.types.length) {
+            throw new IllegalArgumentException("Unknown message type.");
+        }
+
+        var stream = new ByteArrayInputStream(data, offset + 2, length - 2);
+        try (var reader = new JsonReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return MessageCodec.require(this.gson.fromJson(reader, this.types[id]));
+        } catch (JsonParseException ex) {
+            throw new IllegalArgumentException("Invalid message.", ex);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @param message A decoded message.
+     * @return The message.
+     * @throws IllegalArgumentException If the message has no data.
+     */
+    private static Object require(Object message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message has no data.");
+        }
+        return message;
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param message The message.
+     * @param binary Whether to encode a binary frame instead of a text frame.
+     * @return The frame, as a {@link String} or a {@link ByteBuffer}.
+     * @throws IllegalArgumentException If a binary message is not a known type.
+     */
+    Object encode(Object message, boolean binary) {
+        if (!binary) {
+            var envelope = new JsonObject();
+            envelope.addProperty("type", message.getClass().getSimpleName());
+            envelope.add("data", this.gson.toJsonTree(message));
+            return this.gson.toJson(envelope);
+        }
+
+        var id = this.byType.get(message.getClass());
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown message type: " + message.getClass().getName());
+        }
+
+        var output = new ByteArrayOutputStream();
+        output.write(id >>> 8);
+        output.write(id);
+        try (var writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+            this.gson.toJson(message, writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+}
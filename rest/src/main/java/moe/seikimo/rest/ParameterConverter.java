@@ -0,0 +1,70 @@
+package moe.seikimo.rest;
+
+import com.google.gson.Gson;
+import moe.seikimo.general.EncodingUtils;
+
+import java.lang.reflect.Type;
+
+/**
+ * Converts the raw value of a parameter to a typed value.
+ */
+public interface ParameterConverter {
+    /**
+     * Converts the raw value of a parameter.
+     *
+     * @param value The raw value.
+     * @return The converted value.
+     * @throws NumberFormatException If a number is malformed.
+     * @throws com.google.gson.JsonParseException If JSON is malformed.
+     */
+    Object convert(String value);
+
+    /**
+     * Resolves the converter for a type.
+     * This should be called once, and the converter reused.
+     *
+     * @param type The type to convert to.
+     * @return The converter.
+     */
+    static ParameterConverter of(Type type) {
+        var converter = ParameterConverter.simple(type);
+        return converter != null ? converter : value -> EncodingUtils.jsonDecode(value, type);
+    }
+
+    /**
+     * Resolves the converter for a type.
+     * This should be called once, and the converter reused.
+     *
+     * @param type The type to convert to.
+     * @param gson The Gson instance to decode JSON types with.
+     * @return The converter.
+     */
+    static ParameterConverter of(Type type, Gson gson) {
+        var converter = ParameterConverter.simple(type);
+        return converter != null ? converter : value -> gson.fromJson(value, type);
+    }
+
+    /**
+     * Resolves the converter for a type which isn't decoded as JSON.
+     *
+     * @param type The type to convert to.
+     * @return The converter, or null if the type is decoded as JSON.
+     */
+    static ParameterConverter simple(Type type) {
+        if (type == String.class) {
+            return value -> value;
+        } else if (type == int.class || type == Integer.class) {
+            return Integer::parseInt;
+        } else if (type == long.class || type == Long.class) {
+            return Long::parseLong;
+        } else if (type == double.class || type == Double.class) {
+            return Double::parseDouble;
+        } else if (type == float.class || type == Float.class) {
+            return Float::parseFloat;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean::parseBoolean;
+        } else {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package moe.seikimo.rest;
+
+import moe.seikimo.rest.annotations.RateLimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, implemented as a generic cell rate algorithm.
+ * Each bucket is a single timestamp: the time at which the bucket is full again.
+ * Taking a token advances the timestamp with one compare-and-set, so the bucket never locks.
+ * <p>
+ * At most {@code maxClients} clients have their own bucket; further clients share one bucket
+ * until idle clients are swept, which happens in the background at most once per second.
+ */
+final class RateLimiter {
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final long interval;
+    private final long tolerance;
+    private final int maxClients;
+
+    private final AtomicLong route;
+    private final ConcurrentHashMap<String, AtomicLong> clients;
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * @param limit The rate limit.
+     * @param maxClients The amount of clients to track; further clients share one limit.
+     */
+    RateLimiter(RateLimit limit, int maxClients) {
+        if (limit.value() <= 0 || limit.period() <= 0) {
+            throw new IllegalArgumentException("Rate limits must allow at least one request per period.");
+        }
+
+        var burst = limit.burst() > 0 ? limit.burst() : limit.value();
+        this.interval = Math.max(1, TimeUnit.MILLISECONDS.toNanos(limit.period()) / limit.value());
+        this.tolerance = this.interval * (burst - 1);
+        this.maxClients = maxClients;
+
+        if (limit.scope() == RateLimit.Scope.ROUTE) {
+            this.route = new AtomicLong(System.nanoTime());
+            this.clients = null;
+        } else {
+            this.route = null;
+            this.clients = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * @return Whether each client has its own limit.
+     */
+    boolean perClient() {
+        return this.clients != null;
+    }
+
+    /**
+     * Attempts to take a token.
+     *
+     * @param client The client of the request; ignored if the limit is shared.
+     * @param now The current time, from {@link System#nanoTime()}.
+     * @return 0 if a token was taken, otherwise the time until a token is available, in nanoseconds.
+     */
+    long acquire(String client, long now) {
+        var bucket = this.route;
+        if (bucket == null) {
+            this.scheduleSweep(now);
+            bucket = this.bucket(client, now);
+        }
+
+        while (true) {
+            var full = bucket.get();
+            var next = (full - now > 0 ? full : now) + this.interval;
+            var wait = next - now - this.interval - this.tolerance;
+            if (wait > 0) return wait;
+            if (bucket.compareAndSet(full, next)) return 0;
+        }
+    }
+
+    /**
+     * @return The amount of clients currently tracked.
+     */
+    int clients() {
+        return this.clients == null ? 0 : this.tracked.get();
+    }
+
+    /**
+     * Finds the bucket of a client, tracking the client if there is room.
+     *
+     * @param client The client of the request.
+     * @param now The current time, from {@link System#nanoTime()}.
+     * @return The bucket of the client, or the shared bucket if too many clients are tracked.
+     */
+    private AtomicLong bucket(String client, long now) {
+        var bucket = this.clients.get(client);
+        if (bucket != null) return bucket;
+
+        if (this.tracked.incrementAndGet() > this.maxClients) {
+            this.tracked.decrementAndGet();
+            return this.overflow;
+        }
+
+        var created = new AtomicLong(now);
+        bucket = this.clients.putIfAbsent(client, created);
+        if (bucket != null) {
+            // Another request tracked the client first.
+            this.tracked.decrementAndGet();
+            return bucket;
+        }
+        return created;
+    }
+
+    /**
+     * Sweeps idle clients in the background, if the last sweep was long enough ago.
+     *
+     * @param now The current time, from {@link System#nanoTime()}.
+     */
+    private void scheduleSweep(long now) {
+        var last = this.lastSweep.get();
+        if (now - last < SWEEP_INTERVAL || this.tracked.get() == 0) return;
+        if (!this.lastSweep.compareAndSet(last, now)) return;
+
+        ForkJoinPool.commonPool().execute(() -> this.sweep(System.nanoTime()));
+    }
+
+    /**
+     * Removes the buckets of idle clients.
+     * A full bucket is the same as a new bucket, so removing it does not change any limit.
+     *
+     * @param now The current time, from {@link System#nanoTime()}.
+     */
+    void sweep(long now) {
+        if (!this.sweeping.compareAndSet(false, true)) return;
+
+        try {
+            for (var entry : this.clients.entrySet()) {
+                var bucket = entry.getValue();
+                if (bucket.get() - now <= 0 && this.clients.remove(entry.getKey(), bucket)) {
+                    this.tracked.decrementAndGet();
+                }
+            }
+        } finally {
+            this.sweeping.set(false);
+        }
+    }
+}
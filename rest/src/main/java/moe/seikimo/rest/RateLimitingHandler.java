@@ -0,0 +1,52 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+import moe.seikimo.rest.annotations.RateLimit;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Rejects requests to a {@link RateLimit} route which are over the limit.
+ */
+final class RateLimitingHandler implements Handler {
+    private final Handler delegate;
+    private final RateLimiter limiter;
+    private final Function<Context, String> resolver;
+
+    /**
+     * @param delegate The handler of the route.
+     * @param limiter The rate limiter of the route.
+     * @param resolver Identifies the client of a request, or null to use the address of the connection.
+     */
+    RateLimitingHandler(Handler delegate, RateLimiter limiter, Function<Context, String> resolver) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        // Forwarding headers are set by clients too, so they are only trusted when configured.
+        this.resolver = resolver == null ? Context::ip : resolver;
+    }
+
+    @Override
+    public void handle(@NotNull Context ctx) throws Exception {
+        if (Warmer.isWarmUp(ctx)) {
+            this.delegate.handle(ctx);
+            return;
+        }
+
+        var client = this.limiter.perClient() ? this.resolver.apply(ctx) : null;
+        var wait = this.limiter.acquire(client, System.nanoTime());
+        if (wait == 0) {
+            this.delegate.handle(ctx);
+            return;
+        }
+
+        var seconds = Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        ctx.header(Header.RETRY_AFTER, String.valueOf(seconds))
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .result("Too many requests.");
+    }
+}
@@ -1,17 +1,63 @@
 package moe.seikimo.rest;
 
 import io.javalin.http.Context;
-import moe.seikimo.general.EncodingUtils;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * A request being handled by a route.
+ * Parameter maps and parsed parameter values are cached for the lifetime of the request.
+ * Instances are not thread-safe, and should not be shared between threads.
+ */
+public final class Request {
+    /**
+     * The converters of types which aren't decoded as JSON; JSON types use the configured Gson instance.
+     */
+    private static final ClassValue<ParameterConverter> CONVERTERS = new ClassValue<>() {
+        @Override
+        protected ParameterConverter computeValue(Class<?> type) {
+            return ParameterConverter.simple(type);
+        }
+    };
+
+    private final Context handle;
+
+    private Map<String, String> pathParams;
+    private Map<String, List<String>> queryParams;
+    private Parsed parsed;
+
+    private boolean bodyRead;
+    private byte[] bodyBytes;
+    private Type bodyType;
+    private Object bodyValue;
+
+    /**
+     * @param handle The context of the request.
+     */
+    public Request(Context handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * @return The context of the request.
+     */
+    public Context handle() {
+        return this.handle;
+    }
 
-public record Request(Context handle) {
     /**
      * @return The requested route.
      */
     public String route() {
-        return this.handle().path();
+        return this.handle.path();
     }
 
     /// <editor-fold desc="Query Parameters">
@@ -20,11 +66,12 @@ public record Request(Context handle) {
      * Fetches the raw value of a query parameter.
      *
      * @param name The name of the parameter.
-     * @return The raw value of the parameter.
-     * @throws IllegalArgumentException If the parameter does not exist.
+     * @return The raw value of the parameter, or null if the parameter does not exist.
      */
+    @Nullable
     public String query(String name) {
-        return this.handle().queryParam(name);
+        var values = this.queryParams().get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
     }
 
     /**
@@ -36,9 +83,9 @@ public record Request(Context handle) {
      */
     @Nullable
     public String query(String name, String fallback) {
-        var map = this.handle().queryParamMap();
-        var params = map.getOrDefault(name, List.of(fallback));
-        return params.stream().findFirst().orElse(null);
+        var values = this.queryParams().get(name);
+        if (values == null) return fallback;
+        return values.isEmpty() ? null : values.get(0);
     }
 
     /// </editor-fold>
@@ -53,7 +100,11 @@ public record Request(Context handle) {
      * @throws IllegalArgumentException If the parameter does not exist.
      */
     public String param(String name) {
-        return this.handle().pathParam(name);
+        var value = this.pathParams().get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Parameter " + name + " does not exist.");
+        }
+        return value;
     }
 
     /**
@@ -64,8 +115,7 @@ public record Request(Context handle) {
      * @return The raw value of the parameter, or the fallback value if the parameter does not exist.
      */
     public String param(String name, String fallback) {
-        var map = this.handle().pathParamMap();
-        return map.getOrDefault(name, fallback);
+        return this.pathParams().getOrDefault(name, fallback);
     }
 
     /**
@@ -86,33 +136,325 @@ public record Request(Context handle) {
 
     /**
      * Attempts to deserialize the value of a path parameter.
+     * The value is only deserialized the first time it is requested as a type.
      *
      * @param name The name of the parameter.
      * @param fallback The fallback value.
      * @param as The class to deserialize the parameter as.
      * @return The deserialized value of the parameter.
      */
+    @SuppressWarnings("unchecked")
     public <T> T param(String name, T fallback, Class<? extends T> as) {
-        var map = this.handle().pathParamMap();
-        if (!map.containsKey(name)) {
-            return fallback;
+        var parsed = this.find(name, as, false);
+        if (parsed == null) {
+            var value = this.pathParams().get(name);
+            if (value == null) return fallback;
+
+            // Convert before storing, so a value which fails to convert isn't cached.
+            var converter = CONVERTERS.get(as);
+            var converted = converter != null ? converter.convert(value) :
+                    Response.config(this.handle).getGson().fromJson(value, as);
+            parsed = this.store(name, as, false);
+            parsed.value = converted;
+        }
+
+        return (T) parsed.value;
+    }
+
+    /**
+     * Parses the value of a path parameter as an integer.
+     *
+     * @param name The name of the parameter.
+     * @return The value of the parameter.
+     * @throws IllegalArgumentException If the parameter does not exist or is not an integer.
+     */
+    public int paramInt(String name) {
+        return (int) this.required(name, this.primitive(name, int.class, Integer::parseInt)).bits;
+    }
+
+    /**
+     * Parses the value of a path parameter as an integer.
+     *
+     * @param name The name of the parameter.
+     * @param fallback The fallback value.
+     * @return The value of the parameter, or the fallback value if the parameter does not exist.
+     * @throws IllegalArgumentException If the parameter is not an integer.
+     */
+    public int paramInt(String name, int fallback) {
+        var parsed = this.primitive(name, int.class, Integer::parseInt);
+        return parsed == null ? fallback : (int) parsed.bits;
+    }
+
+    /**
+     * Parses the value of a path parameter as a long.
+     *
+     * @param name The name of the parameter.
+     * @return The value of the parameter.
+     * @throws IllegalArgumentException If the parameter does not exist or is not a long.
+     */
+    public long paramLong(String name) {
+        return this.required(name, this.primitive(name, long.class, Long::parseLong)).bits;
+    }
+
+    /**
+     * Parses the value of a path parameter as a long.
+     *
+     * @param name The name of the parameter.
+     * @param fallback The fallback value.
+     * @return The value of the parameter, or the fallback value if the parameter does not exist.
+     * @throws IllegalArgumentException If the parameter is not a long.
+     */
+    public long paramLong(String name, long fallback) {
+        var parsed = this.primitive(name, long.class, Long::parseLong);
+        return parsed == null ? fallback : parsed.bits;
+    }
+
+    /**
+     * Parses the value of a path parameter as a double.
+     *
+     * @param name The name of the parameter.
+     * @return The value of the parameter.
+     * @throws IllegalArgumentException If the parameter does not exist or is not a number.
+     */
+    public double paramDouble(String name) {
+        return Double.longBitsToDouble(this.required(name,
+                this.primitive(name, double.class, Request::parseDouble)).bits);
+    }
+
+    /**
+     * Parses the value of a path parameter as a double.
+     *
+     * @param name The name of the parameter.
+     * @param fallback The fallback value.
+     * @return The value of the parameter, or the fallback value if the parameter does not exist.
+     * @throws IllegalArgumentException If the parameter is not a number.
+     */
+    public double paramDouble(String name, double fallback) {
+        var parsed = this.primitive(name, double.class, Request::parseDouble);
+        return parsed == null ? fallback : Double.longBitsToDouble(parsed.bits);
+    }
+
+    /**
+     * Parses the value of a path parameter as a boolean.
+     *
+     * @param name The name of the parameter.
+     * @return True if the value of the parameter is 'true', ignoring case.
+     * @throws IllegalArgumentException If the parameter does not exist.
+     */
+    public boolean paramBoolean(String name) {
+        return this.required(name, this.primitive(name, boolean.class, Request::parseBoolean)).bits != 0;
+    }
+
+    /**
+     * Parses the value of a path parameter as a boolean.
+     *
+     * @param name The name of the parameter.
+     * @param fallback The fallback value.
+     * @return True if the value of the parameter is 'true', ignoring case, or the fallback value if the parameter does not exist.
+     */
+    public boolean paramBoolean(String name, boolean fallback) {
+        var parsed = this.primitive(name, boolean.class, Request::parseBoolean);
+        return parsed == null ? fallback : parsed.bits != 0;
+    }
+
+    /// </editor-fold>
+
+    /// <editor-fold desc="Body">
+
+    /**
+     * Opens the request body as a stream.
+     * The stream fails once more than the configured maximum body size is read.
+     *
+     * @return The request body.
+     * @throws io.javalin.http.ContentTooLargeResponse If the declared body is too large.
+     * @throws IllegalStateException If the body was already read.
+     */
+    public InputStream bodyStream() {
+        if (this.bodyRead) {
+            throw new IllegalStateException("The request body was already read.");
         }
-        var paramValue = map.get(name);
-
-        if (as == String.class) {
-            return as.cast(paramValue);
-        } else if (as == int.class) {
-            return as.cast(Integer.parseInt(paramValue));
-        } else if (as == long.class) {
-            return as.cast(Long.parseLong(paramValue));
-        } else if (as == double.class) {
-            return as.cast(Double.parseDouble(paramValue));
-        } else if (as == float.class) {
-            return as.cast(Float.parseFloat(paramValue));
-        } else if (as == boolean.class) {
-            return as.cast(Boolean.parseBoolean(paramValue));
-        } else {
-            return EncodingUtils.jsonDecode(paramValue, as);
+        this.bodyRead = true;
+
+        return RequestBody.open(this.handle, Response.config(this.handle).getMaxBodySize());
+    }
+
+    /**
+     * Reads the entire request body.
+     *
+     * @return The request body.
+     * @throws io.javalin.http.ContentTooLargeResponse If the body is too large.
+     */
+    public byte[] bodyAsBytes() {
+        if (this.bodyBytes == null) {
+            try (var stream = this.bodyStream()) {
+                this.bodyBytes = stream.readAllBytes();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return this.bodyBytes;
+    }
+
+    /**
+     * Reads the entire request body as a string.
+     *
+     * @return The request body.
+     * @throws io.javalin.http.ContentTooLargeResponse If the body is too large.
+     */
+    public String body() {
+        return new String(this.bodyAsBytes(), RequestBody.charset(this.handle));
+    }
+
+    /**
+     * Decodes the JSON request body while it is read.
+     *
+     * @param as The class to decode the body as.
+     * @return The decoded body, or null if the body is empty.
+     * @throws io.javalin.http.BadRequestResponse If the body is not valid JSON.
+     * @throws io.javalin.http.ContentTooLargeResponse If the body is too large.
+     */
+    public <T> T body(Class<T> as) {
+        return this.body((Type) as);
+    }
+
+    /**
+     * Decodes the JSON request body while it is read.
+     * The decoded body is kept, so it can be requested again as the same type.
+     *
+     * @param as The type to decode the body as.
+     * @return The decoded body, or null if the body is empty.
+     * @throws io.javalin.http.BadRequestResponse If the body is not valid JSON.
+     * @throws io.javalin.http.ContentTooLargeResponse If the body is too large.
+     * @throws IllegalStateException If the body was already decoded as another type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T body(Type as) {
+        if (as.equals(this.bodyType)) {
+            return (T) this.bodyValue;
+        }
+
+        var stream = this.bodyBytes != null ?
+                new ByteArrayInputStream(this.bodyBytes) : this.bodyStream();
+        this.bodyValue = RequestBody.decode(stream, RequestBody.charset(this.handle),
+                Response.config(this.handle).getGson(), as);
+        this.bodyType = as;
+        return (T) this.bodyValue;
+    }
+
+    /// </editor-fold>
+
+    /// <editor-fold desc="Caching">
+
+    /**
+     * @return The path parameters of the request.
+     */
+    private Map<String, String> pathParams() {
+        if (this.pathParams == null) {
+            this.pathParams = this.handle.pathParamMap();
+        }
+        return this.pathParams;
+    }
+
+    /**
+     * @return The query parameters of the request.
+     */
+    private Map<String, List<String>> queryParams() {
+        if (this.queryParams == null) {
+            this.queryParams = this.handle.queryParamMap();
+        }
+        return this.queryParams;
+    }
+
+    /**
+     * Fetches a path parameter parsed as a primitive.
+     *
+     * @param name The name of the parameter.
+     * @param type The primitive type.
+     * @param parser Parses the raw value into its bits.
+     * @return The parsed parameter, or null if the parameter does not exist.
+     */
+    private Parsed primitive(String name, Class<?> type, ToLongFunction<String> parser) {
+        var parsed = this.find(name, type, true);
+        if (parsed != null) return parsed;
+
+        var value = this.pathParams().get(name);
+        if (value == null) return null;
+
+        var bits = parser.applyAsLong(value);
+        parsed = this.store(name, type, true);
+        parsed.bits = bits;
+        return parsed;
+    }
+
+    /**
+     * @param name The name of the parameter.
+     * @param parsed The parsed parameter.
+     * @return The parsed parameter.
+     * @throws IllegalArgumentException If the parameter does not exist.
+     */
+    private Parsed required(String name, Parsed parsed) {
+        if (parsed == null) {
+            throw new IllegalArgumentException("Parameter " + name + " does not exist.");
+        }
+        return parsed;
+    }
+
+    /**
+     * Finds a parameter which was already parsed.
+     * Requests have few parameters, so a linear search is the fastest.
+     *
+     * @param name The name of the parameter.
+     * @param type The type the parameter was parsed as.
+     * @param primitive Whether the parameter was parsed as a primitive.
+     * @return The parsed parameter, or null if it was not parsed yet.
+     */
+    private Parsed find(String name, Class<?> type, boolean primitive) {
+        for (var parsed = this.parsed; parsed != null; parsed = parsed.next) {
+            if (parsed.type == type && parsed.primitive == primitive && parsed.name.equals(name)) {
+                return parsed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a parsed parameter to the cache.
+     *
+     * @param name The name of the parameter.
+     * @param type The type the parameter was parsed as.
+     * @param primitive Whether the parameter was parsed as a primitive.
+     * @return The new entry, to store the value in.
+     */
+    private Parsed store(String name, Class<?> type, boolean primitive) {
+        return this.parsed = new Parsed(name, type, primitive, this.parsed);
+    }
+
+    private static long parseDouble(String value) {
+        return Double.doubleToRawLongBits(Double.parseDouble(value));
+    }
+
+    private static long parseBoolean(String value) {
+        return Boolean.parseBoolean(value) ? 1 : 0;
+    }
+
+    /**
+     * A parameter value which was already parsed.
+     * Primitives are stored in {@link #bits} to avoid boxing.
+     */
+    private static final class Parsed {
+        private final String name;
+        private final Class<?> type;
+        private final boolean primitive;
+        private final Parsed next;
+
+        private Object value;
+        private long bits;
+
+        private Parsed(String name, Class<?> type, boolean primitive, Parsed next) {
+            this.name = name;
+            this.type = type;
+            this.primitive = primitive;
+            this.next = next;
         }
     }
 
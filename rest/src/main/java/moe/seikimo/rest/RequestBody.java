@@ -0,0 +1,149 @@
+package moe.seikimo.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ContentTooLargeResponse;
+import io.javalin.http.Context;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads request bodies from the input stream, without copying them into memory first.
+ */
+final class RequestBody {
+    private RequestBody() {}
+
+    /**
+     * Opens the body of a request.
+     * Requests which declare a body over the limit are rejected before anything is read.
+     *
+     * @param ctx The context of the request.
+     * @param maxSize The maximum size of the body, in bytes; 0 or less is unlimited.
+     * @return The body, which fails once more than the maximum size is read.
+     * @throws ContentTooLargeResponse If the declared body is over the limit.
+     */
+    static InputStream open(Context ctx, long maxSize) {
+        if (maxSize <= 0) return ctx.bodyInputStream();
+
+        if (ctx.contentLength() > maxSize) {
+            throw RequestBody.tooLarge(maxSize);
+        }
+        return new Limited(ctx.bodyInputStream(), maxSize);
+    }
+
+    /**
+     * Decodes a JSON body while it is read.
+     * The body must be exactly one strict JSON value; lenient syntax and trailing data are rejected.
+     *
+     * @param stream The body.
+     * @param charset The character set of the body.
+     * @param gson The Gson instance to decode with.
+     * @param type The type to decode the body as.
+     * @return The decoded body, or null if the body is empty.
+     * @throws BadRequestResponse If the body is not valid JSON.
+     */
+    static Object decode(InputStream stream, Charset charset, Gson gson, Type type) {
+        try (var reader = new JsonReader(new InputStreamReader(stream, charset))) {
+            // Gson.fromJson always reads leniently, so the adapter reads directly.
+            reader.setLenient(false);
+            try {
+                reader.peek();
+            } catch (EOFException ignored) {
+                return null;
+            }
+
+            var value = gson.getAdapter(TypeToken.get(type)).read(reader);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new BadRequestResponse("Invalid request body: unexpected data after the JSON value.");
+            }
+            return value;
+        } catch (JsonParseException | MalformedJsonException | IllegalStateException ex) {
+            throw new BadRequestResponse("Invalid request body: " + ex.getMessage());
+        } catch (EOFException ex) {
+            throw new BadRequestResponse("Invalid request body: unexpected end of input.");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @param ctx The context of the request.
+     * @return The character set of the body.
+     */
+    static Charset charset(Context ctx) {
+        var encoding = ctx.characterEncoding();
+        try {
+            return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+        } catch (IllegalArgumentException ignored) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * @param maxSize The maximum size of the body, in bytes.
+     * @return The response for a body over the limit.
+     */
+    private static ContentTooLargeResponse tooLarge(long maxSize) {
+        return new ContentTooLargeResponse("Request body is larger than " + maxSize + " bytes.");
+    }
+
+    /**
+     * An input stream which fails once more than a limit is read.
+     */
+    private static final class Limited extends FilterInputStream {
+        private final long limit;
+        private long remaining;
+
+        private Limited(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var value = super.read();
+            if (value != -1) this.consume(1);
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var read = super.read(b, off, len);
+            if (read > 0) this.consume(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            var skipped = super.skip(n);
+            this.consume(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void consume(long amount) {
+            this.remaining -= amount;
+            if (this.remaining < 0) {
+                throw RequestBody.tooLarge(this.limit);
+            }
+        }
+    }
+}
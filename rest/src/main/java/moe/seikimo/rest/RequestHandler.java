@@ -1,22 +1,85 @@
 package moe.seikimo.rest;
 
+import com.google.gson.Gson;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
-import io.javalin.http.HandlerType;
-import lombok.AllArgsConstructor;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
 import lombok.extern.slf4j.Slf4j;
+import moe.seikimo.rest.metrics.RouteMetrics;
 import org.jetbrains.annotations.NotNull;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 @Slf4j
-@AllArgsConstructor
 public final class RequestHandler implements Handler {
+    private static final MethodType INVOKER_TYPE
+            = MethodType.methodType(Object.class, Request.class, Object[].class);
+
+    /**
+     * The class file of {@link CompiledHandler}, or null if it can't be read.
+     */
+    private static final byte[] TEMPLATE = RequestHandler.template();
+
+    private static final ErrorPipeline DEFAULT_ERRORS
+            = new ErrorPipeline(false, 0);
+    private static final Gson DEFAULT_GSON
+            = new Gson();
+
     private final Object instance;
     private final Method handler;
 
+    private final HandlerType type;
+    private final Invoker invoker;
+    private final ArgumentBinder binder;
+
+    private final Lifecycle lifecycle;
+    private final LoadShedder shedder;
+    private final ConcurrencyLimiter limiter;
+    private final RouteMetrics metrics;
+    private final ErrorPipeline errors;
+
+    public RequestHandler(Object instance, Method handler) {
+        this(null, "*", "*", instance, handler);
+    }
+
+    /**
+     * @param application The application which the handler belongs to.
+     * @param verb The HTTP method of the route.
+     * @param route The path of the route.
+     * @param instance The instance to invoke the handler on.
+     * @param handler The handler method.
+     */
+    RequestHandler(
+            RestApplication application,
+            String verb, String route,
+            Object instance, Method handler) {
+        this.instance = instance;
+        this.handler = handler;
+        this.lifecycle = application == null ? null : application.getLifecycle();
+        this.shedder = application == null ? null : application.getShedder();
+        this.limiter = application == null ? null : application.getLimiter();
+
+        var registry = application == null ? null : application.getMetrics();
+        this.metrics = registry == null ? null : registry.route(verb, route);
+        this.errors = application == null ? DEFAULT_ERRORS : application.getErrors();
+
+        // Resolve the handler once, so dispatching doesn't use reflection.
+        this.type = RequestHandler.determine(handler);
+        this.invoker = RequestHandler.compile(instance, handler, this.type);
+        this.binder = this.type == HandlerType.ARGS ?
+                ArgumentBinder.compile(handler, application == null ?
+                        DEFAULT_GSON : application.getConfig().getGson()) : null;
+    }
+
     /**
      * This is invoked by Javalin.
      *
@@ -24,59 +87,322 @@ public final class RequestHandler implements Handler {
      */
     @Override
     public void handle(@NotNull Context context) {
+        var pending = this.dispatch(context);
+        if (pending != null) {
+            // Release the request thread while asynchronous results complete.
+            context.future(() -> pending);
+        }
+    }
+
+    /**
+     * Handles a request, without handing asynchronous results to Javalin.
+     * The returned future completes once the response is applied and the handler's resources are released,
+     * so callers can chain work which runs before Javalin writes the response.
+     *
+     * @param context The context of the request.
+     * @return The pending result, or null if the handler completed synchronously.
+     */
+    CompletableFuture<?> dispatch(Context context) {
+        var lifecycle = this.lifecycle;
+        if (lifecycle == null) {
+            return this.measure(context);
+        }
+
+        // Reject new requests while draining, and close the connection so the client moves on.
+        if (!lifecycle.enter()) {
+            context
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(Header.CONNECTION, "close")
+                    .result("Server is shutting down.");
+            return null;
+        }
+
+        CompletableFuture<?> pending = null;
+        try {
+            pending = this.measure(context);
+        } finally {
+            if (pending == null) {
+                lifecycle.exit();
+            } else {
+                pending = pending.whenComplete((result, ex) -> lifecycle.exit());
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Handles a request, recording its metrics.
+     *
+     * @param context The context of the request.
+     * @return The pending result, or null if the handler completed synchronously.
+     */
+    private CompletableFuture<?> measure(Context context) {
+        var metrics = this.metrics;
+        if (metrics == null || Warmer.isWarmUp(context)) {
+            return this.execute(context);
+        }
+
+        metrics.started();
+        var start = System.nanoTime();
+
+        CompletableFuture<?> pending = null;
+        try {
+            pending = this.execute(context);
+        } finally {
+            if (pending == null) {
+                metrics.completed(System.nanoTime() - start, context.statusCode());
+            } else {
+                pending = pending.whenComplete((result, ex) -> metrics.completed(
+                        System.nanoTime() - start, context.statusCode()));
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Invokes the handler, unless the server is overloaded.
+     *
+     * @param context The context of the request.
+     * @return The pending result, or null if the handler completed synchronously.
+     */
+    private CompletableFuture<?> execute(Context context) {
+        var shedder = this.shedder;
+        if (shedder == null) {
+            return this.queue(context);
+        }
+
+        // Reject immediately while latency is over the target.
+        if (!shedder.acquire()) {
+            context
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .result("Server is overloaded.");
+            return null;
+        }
+
+        var start = System.nanoTime();
+        CompletableFuture<?> pending = null;
         try {
-            var result = switch (this.determine()) {
-                case NONE -> this.handler.invoke(this.instance);
-                case CONTEXT -> {
+            pending = this.queue(context);
+        } finally {
+            if (pending == null) {
+                shedder.release(System.nanoTime() - start);
+            } else {
+                pending = pending.whenComplete((result, ex) ->
+                        shedder.release(System.nanoTime() - start));
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Invokes the handler once a slot is free.
+     *
+     * @param context The context of the request.
+     * @return The pending result, or null if the handler completed synchronously.
+     */
+    private CompletableFuture<?> queue(Context context) {
+        var limiter = this.limiter;
+        if (limiter == null) {
+            return this.invoke(context);
+        }
+
+        // Wait for a free slot before invoking the handler.
+        if (!limiter.acquire()) {
+            context
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .result("Server is at capacity.");
+            return null;
+        }
+
+        CompletableFuture<?> pending = null;
+        try {
+            pending = this.invoke(context);
+        } finally {
+            // Asynchronous handlers hold their slot until they complete.
+            if (pending == null) {
+                limiter.release();
+            } else {
+                pending = pending.whenComplete((result, ex) -> limiter.release());
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Invokes the handler and applies its result.
+     *
+     * @param context The context of the request.
+     * @return The pending result, or null if the handler completed synchronously.
+     */
+    private CompletableFuture<?> invoke(Context context) {
+        try {
+            var result = switch (this.type) {
+                case NONE -> this.invoker.invoke(null, null);
+                case CONTEXT -> this.invoker.invoke(new Request(context), null);
+                case ARGS -> {
                     var request = new Request(context);
-                    yield this.handler.invoke(this.instance, request);
+                    yield this.invoker.invoke(request, this.binder.bind(request));
                 }
-                default -> throw new IllegalArgumentException("Unsupported handler type.");
             };
 
-            if (result instanceof String strResult) {
-                context.result(strResult);
-            } else if (result instanceof Response<?> response) {
-                response.apply(context);
+            // Asynchronous results are applied once they complete.
+            if (result instanceof CompletionStage<?> stage) {
+                return stage.toCompletableFuture().handle((value, ex) -> {
+                    if (ex == null) {
+                        this.apply(context, value);
+                    } else {
+                        this.error(context, ex instanceof CompletionException ?
+                                ex.getCause() : ex);
+                    }
+                    return null;
+                });
             }
-        } catch (InvocationTargetException | IllegalAccessException ex) {
-            log.warn("Exception encountered while trying to invoke handler.", ex);
-            context
-                    .status(500)
-                    .result(String.join(
-                            "\n",
-                            Arrays.stream(ex.getStackTrace())
-                                    .map(StackTraceElement::toString)
-                                    .toList()
-                    ));
-        } catch (IllegalArgumentException ex) {
-            log.warn("Exception encountered while trying to invoke handler.", ex);
-            context
-                    .status(500)
-                    .result(ex.getMessage());
+
+            this.apply(context, result);
+        } catch (Throwable ex) {
+            this.error(context, ex);
+        }
+
+        return null;
+    }
+
+    /**
+     * Applies the result of a handler to the response.
+     *
+     * @param context The context of the request.
+     * @param result The result of the handler.
+     */
+    private void apply(Context context, Object result) {
+        if (result instanceof String strResult) {
+            context.result(strResult);
+        } else if (result instanceof Response<?> response) {
+            response.apply(context);
+        } else if (result instanceof EventStream stream) {
+            stream.apply(context);
         }
     }
 
     /**
+     * Responds with an error.
+     *
+     * @param context The context of the request.
+     * @param ex The exception thrown by the handler.
+     */
+    private void error(Context context, Throwable ex) {
+        if (this.metrics != null) {
+            this.metrics.failed();
+        }
+
+        var result = this.errors.handle(context, ex);
+        if (result != null) {
+            this.apply(context, result);
+        }
+    }
+
+    /**
+     * @param handler The handler method.
      * @return The type of handler.
      */
-    private HandlerType determine() {
-        var parameters = this.handler.getParameters();
+    private static HandlerType determine(Method handler) {
+        var parameters = handler.getParameterTypes();
         if (parameters.length == 0) {
             return HandlerType.NONE;
         }
 
         if (parameters.length == 1 &&
-                parameters[0].getType().equals(Request.class)) {
+                parameters[0].equals(Request.class)) {
             return HandlerType.CONTEXT;
         }
 
         return HandlerType.ARGS;
     }
 
+    /**
+     * Creates the invoker of a handler.
+     * Every handler gets its own hidden class, which holds the handler's method handle as a constant,
+     * so the JIT can inline the handler into its invoker.
+     *
+     * @param instance The instance to invoke the handler on.
+     * @param handler The handler method.
+     * @param type The type of handler.
+     * @return The invoker.
+     */
+    private static Invoker compile(Object instance, Method handler, HandlerType type) {
+        var handle = RequestHandler.adapt(instance, handler, type);
+        if (TEMPLATE != null) {
+            try {
+                var lookup = MethodHandles.lookup()
+                        .defineHiddenClassWithClassData(TEMPLATE, handle, true);
+                return (Invoker) lookup
+                        .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                        .invoke();
+            } catch (Throwable ex) {
+                log.debug("Unable to compile handler {}; it will be invoked through a method handle.",
+                        handler.getName(), ex);
+            }
+        }
+
+        return (request, arguments) -> (Object) handle.invokeExact(request, arguments);
+    }
+
+    /**
+     * Creates a method handle which invokes the handler.
+     * The receiver is bound, and the handle accepts the request and the bound arguments,
+     * ignoring whichever the handler doesn't take.
+     *
+     * @param instance The instance to invoke the handler on.
+     * @param handler The handler method.
+     * @param type The type of handler.
+     * @return The method handle.
+     */
+    private static MethodHandle adapt(Object instance, Method handler, HandlerType type) {
+        try {
+            var handle = MethodHandles.lookup().unreflect(handler);
+            if (!Modifier.isStatic(handler.getModifiers())) {
+                handle = handle.bindTo(instance);
+            }
+
+            handle = switch (type) {
+                case NONE -> MethodHandles.dropArguments(handle, 0, Request.class, Object[].class);
+                case CONTEXT -> MethodHandles.dropArguments(handle, 1, Object[].class);
+                case ARGS -> MethodHandles.dropArguments(
+                        handle.asSpreader(Object[].class, handler.getParameterCount()), 0, Request.class);
+            };
+            return handle.asType(INVOKER_TYPE);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException(
+                    "Unable to access handler: " + handler.getName(), ex);
+        }
+    }
+
+    /**
+     * @return The class file of {@link CompiledHandler}, or null if it can't be read.
+     */
+    private static byte[] template() {
+        try (var stream = CompiledHandler.class.getResourceAsStream("CompiledHandler.class")) {
+            return stream == null ? null : stream.readAllBytes();
+        } catch (IOException ex) {
+            log.debug("Unable to read the handler template.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Invokes a handler.
+     * The request and arguments are null for handlers which don't take them.
+     */
+    @FunctionalInterface
+    interface Invoker {
+        Object invoke(Request request, Object[] arguments) throws Throwable;
+    }
+
     enum HandlerType {
         NONE, // No parameters in handler.
         CONTEXT, // Context parameter in handler.
-        ARGS, // Arguments in handler.
+        ARGS, // Bound arguments in handler.
     }
 }
@@ -0,0 +1,51 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+
+/**
+ * Identifies requests which produce the same response.
+ * Each value is prefixed with its length, and missing values with a separate marker,
+ * so no combination of values can produce the key of another.
+ */
+final class RequestKey {
+    private static final char PRESENT = '\0', ABSENT = '\1';
+
+    private RequestKey() {}
+
+    /**
+     * Creates the key for a request.
+     *
+     * @param ctx The context of the request.
+     * @param headers The request headers which produce different responses.
+     * @param query The query parameters which produce different responses.
+     * @return The key.
+     */
+    static String of(Context ctx, String[] headers, String[] query) {
+        if (headers.length == 0 && query.length == 0) {
+            return ctx.path();
+        }
+
+        var builder = new StringBuilder(ctx.path());
+        for (var header : headers) {
+            RequestKey.append(builder, ctx.header(header));
+        }
+        for (var param : query) {
+            RequestKey.append(builder, ctx.queryParam(param));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends a value to a key.
+     *
+     * @param builder The key.
+     * @param value The value, or null if it is missing.
+     */
+    private static void append(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append(ABSENT);
+        } else {
+            builder.append(PRESENT).append(value.length()).append(':').append(value);
+        }
+    }
+}
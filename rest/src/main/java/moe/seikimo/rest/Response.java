@@ -1,15 +1,30 @@
 package moe.seikimo.rest;
 
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
+import io.javalin.http.Header;
 import io.javalin.http.HttpStatus;
 import lombok.Setter;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 @Setter
 public class Response<T> {
+    private static final RestConfiguration DEFAULTS
+            = RestConfiguration.builder().build();
+
     private T body;
     private HttpStatus statusCode;
+    private Boolean streaming;
+    private boolean precompressed;
 
     public Response() {
         this.statusCode = HttpStatus.OK;
@@ -35,6 +50,29 @@ public class Response<T> {
         this.body = body;
     }
 
+    /**
+     * Marks the body to be written directly to the output stream.
+     * This overrides the application's default.
+     *
+     * @return This response.
+     */
+    public Response<T> streaming() {
+        this.streaming = true;
+        return this;
+    }
+
+    /**
+     * Marks the body to be served from the precompressed cache.
+     * This only applies to {@code String} and {@code byte[]} bodies.
+     * Use this for large bodies which are sent often, such as configuration or rendered templates.
+     *
+     * @return This response.
+     */
+    public Response<T> precompressed() {
+        this.precompressed = true;
+        return this;
+    }
+
     /**
      * This method should be called when the response is ready to be sent.
      *
@@ -45,15 +83,131 @@ public class Response<T> {
 
         // Set the body based on provided type.
         if (this.body != null) {
-            if (this.body instanceof String strBody) {
+            if (this.precompressed && this.body instanceof String strBody) {
+                this.compressed(ctx, strBody.getBytes(StandardCharsets.UTF_8));
+            } else if (this.precompressed && this.body instanceof byte[] bytesBody) {
+                this.compressed(ctx, bytesBody);
+            } else if (this.body instanceof String strBody) {
                 ctx.result(strBody);
             } else if (this.body instanceof byte[] bytesBody) {
                 ctx.result(bytesBody);
             } else if (this.body instanceof InputStream streamBody) {
                 ctx.result(streamBody);
+            } else if (this.body instanceof Iterator<?> iterator) {
+                this.stream(ctx, iterator);
+            } else if (this.body instanceof Stream<?> stream) {
+                try (stream) {
+                    this.stream(ctx, stream.iterator());
+                }
+            } else if (this.streaming == null ?
+                    Response.config(ctx).isStreamJson() : this.streaming) {
+                this.stream(ctx, this.body);
             } else {
                 ctx.json(this.body);
             }
         }
     }
+
+    /**
+     * Writes a body using the precompressed cache.
+     * The body is sent as-is if the client doesn't accept a supported encoding.
+     *
+     * @param ctx The context of the request.
+     * @param body The uncompressed body.
+     */
+    private void compressed(Context ctx, byte[] body) {
+        ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+
+        var cache = Response.compressionCache(ctx);
+        var compressor = cache == null || body.length < Response.config(ctx).getCompressionThreshold() ?
+                null : cache.negotiate(ctx.header(Header.ACCEPT_ENCODING));
+        if (compressor == null) {
+            ctx.result(body);
+            return;
+        }
+
+        ctx.header(Header.CONTENT_ENCODING, compressor.encoding());
+        ctx.result(cache.compress(compressor, body));
+    }
+
+    /**
+     * Writes an object to the output stream as JSON.
+     *
+     * @param ctx The context of the request.
+     * @param object The object to write.
+     */
+    private void stream(Context ctx, Object object) {
+        var gson = Response.config(ctx).getGson();
+        try {
+            var writer = Response.writer(ctx, gson);
+            gson.toJson(object, object.getClass(), writer);
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes the elements of an iterator to the output stream as a JSON array.
+     * Each element is serialized as it is read.
+     *
+     * @param ctx The context of the request.
+     * @param iterator The elements to write.
+     */
+    private void stream(Context ctx, Iterator<?> iterator) {
+        var gson = Response.config(ctx).getGson();
+        try {
+            var writer = Response.writer(ctx, gson);
+            writer.beginArray();
+            while (iterator.hasNext()) {
+                var element = iterator.next();
+                if (element == null) {
+                    writer.nullValue();
+                } else {
+                    gson.toJson(element, element.getClass(), writer);
+                }
+            }
+            writer.endArray();
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Creates a JSON writer for the response's output stream.
+     *
+     * @param ctx The context of the request.
+     * @param gson The Gson instance to configure the writer with.
+     * @return The JSON writer.
+     */
+    private static JsonWriter writer(Context ctx, Gson gson) throws IOException {
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        return gson.newJsonWriter(new OutputStreamWriter(
+                ctx.outputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param ctx The context of the request.
+     * @return The precompressed body cache, or null if it is disabled.
+     */
+    static CompressionCache compressionCache(Context ctx) {
+        try {
+            return ctx.appData(RestApplication.COMPRESSION_CACHE);
+        } catch (IllegalStateException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * @param ctx The context of the request.
+     * @return The configuration of the application handling the request.
+     */
+    static RestConfiguration config(Context ctx) {
+        try {
+            return ctx.appData(RestApplication.CONFIG);
+        } catch (IllegalStateException ignored) {
+            return DEFAULTS;
+        }
+    }
 }
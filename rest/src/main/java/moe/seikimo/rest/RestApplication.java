@@ -1,24 +1,45 @@
 package moe.seikimo.rest;
 
 import io.javalin.Javalin;
+import io.javalin.compression.Brotli;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
+import io.javalin.config.JavalinConfig;
+import io.javalin.config.Key;
 import io.javalin.http.Handler;
 import io.javalin.http.HandlerType;
 import io.javalin.http.HttpStatus;
 import io.javalin.json.JavalinGson;
+import io.javalin.util.ConcurrencyUtil;
 import lombok.extern.slf4j.Slf4j;
+import moe.seikimo.rest.annotations.Cached;
+import moe.seikimo.rest.annotations.Coalesced;
+import moe.seikimo.rest.annotations.ExceptionHandler;
 import moe.seikimo.rest.annotations.NotFound;
+import moe.seikimo.rest.annotations.RateLimit;
 import moe.seikimo.rest.annotations.Route;
+import moe.seikimo.rest.annotations.WarmUp;
+import moe.seikimo.rest.annotations.WebSocket;
 import moe.seikimo.rest.annotations.methods.*;
 import moe.seikimo.rest.annotations.methods.repeat.*;
+import moe.seikimo.rest.engine.HttpEngine;
+import moe.seikimo.rest.engine.JavalinEngine;
+import moe.seikimo.rest.engine.StandaloneEngine;
 import moe.seikimo.rest.interfaces.RouteHandler;
+import moe.seikimo.rest.metrics.InMemoryMetricsRegistry;
+import moe.seikimo.rest.metrics.MetricsRegistry;
 import org.reflections.Reflections;
 import org.reflections.scanners.Scanners;
 import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 /**
@@ -26,13 +47,31 @@ import java.util.function.Function;
  */
 @Slf4j
 public final class RestApplication {
+    /**
+     * The key which the application's configuration is stored under.
+     */
+    public static final Key<RestConfiguration> CONFIG = new Key<>("magix-rest-config");
+    /**
+     * The key which the precompressed body cache is stored under.
+     */
+    public static final Key<CompressionCache> COMPRESSION_CACHE = new Key<>("magix-rest-compression");
+
+    /**
+     * The annotations which make their declaring class a component.
+     */
+    private static final List<Class<? extends Annotation>> ROUTE_ANNOTATIONS = List.of(
+            ExceptionHandler.class, Route.class, NotFound.class, WebSocket.class, WarmUp.class,
+            GET.class, GETs.class, POST.class, POSTs.class, PUT.class, PUTs.class,
+            PATCH.class, PATCHs.class, DELETE.class, DELETEs.class);
+
     /**
      * This method should be called during the {@code main} method of the application.
      *
      * @param clazz The main class of the application.
+     * @return The running application.
      */
-    public static void run(Class<?> clazz) {
-        RestApplication.run(clazz, RestConfiguration.builder().build());
+    public static RestApplication run(Class<?> clazz) {
+        return RestApplication.run(clazz, RestConfiguration.builder().build());
     }
 
     /**
@@ -40,38 +79,115 @@ public final class RestApplication {
      *
      * @param clazz The main class of the application.
      * @param config The configuration for the application.
+     * @return The running application.
      */
-    public static void run(Class<?> clazz, RestConfiguration config) {
+    public static RestApplication run(Class<?> clazz, RestConfiguration config) {
         var app = new RestApplication(
                 config,
                 clazz.getClassLoader(),
                 clazz.getPackage().getName());
         app.register();
         app.bind(config.getPort());
+        app.warmUp();
+        return app;
     }
 
     private final RestConfiguration config;
-    private final Reflections reflector;
-    private final Javalin javalin;
+    private final Function<Class<? extends Annotation>, Set<Method>> reflector;
+    private final HttpEngine engine;
+    private final ConcurrencyLimiter limiter;
+    private final LoadShedder shedder;
+    private final MetricsRegistry metrics;
+    private final ErrorPipeline errors;
+    private final Lifecycle lifecycle = new Lifecycle();
+    private final Injector injector;
 
-    private final Map<String, Object> instances = new HashMap<>();
+    private Thread shutdownHook;
 
     private RestApplication(RestConfiguration config, ClassLoader classLoader, String packageName) {
         this.config = config;
-        this.reflector = new Reflections(new ConfigurationBuilder()
+        this.injector = new Injector(config.getComponents());
+        this.reflector = switch (config.getDiscovery()) {
+            case SCAN -> RestApplication.scan(classLoader, packageName);
+            case INDEX -> RouteIndex.load(classLoader, packageName)::getMethodsAnnotatedWith;
+        };
+        if (config.isVirtualThreads() && !ConcurrencyUtil.isLoomAvailable()) {
+            log.warn("Virtual threads are not available on this JVM, using platform threads.");
+        }
+
+        this.metrics = config.getMetrics() == null && config.getMetricsPath() != null ?
+                new InMemoryMetricsRegistry() : config.getMetrics();
+        this.errors = new ErrorPipeline(config.isProductionErrors(), config.getErrorLogLimit());
+        this.limiter = config.getMaxConcurrency() > 0 ?
+                new ConcurrencyLimiter(config.getMaxConcurrency(), config.getQueueTimeout()) : null;
+        this.shedder = config.getLatencyTarget() > 0 ? new LoadShedder(config.getLatencyTarget(),
+                config.getAdaptiveMinLimit(), config.getAdaptiveMaxLimit()) : null;
+        this.engine = switch (config.getEngine()) {
+            case JAVALIN -> new JavalinEngine(RestApplication.javalin(config));
+            case STANDALONE -> new StandaloneEngine(config);
+        };
+    }
+
+    /**
+     * Creates the Javalin instance of the application.
+     *
+     * @param config The application configuration.
+     * @return The Javalin instance.
+     */
+    private static Javalin javalin(RestConfiguration config) {
+        return Javalin.create(javalinConfig -> {
+            // Apply defaults.
+            javalinConfig.jsonMapper(new JavalinGson(config.getGson(), config.isVirtualThreads()));
+            javalinConfig.appData(RestApplication.CONFIG, config);
+            RestApplication.compression(javalinConfig, config);
+            javalinConfig.useVirtualThreads = config.isVirtualThreads();
+
+            // Invoke the configured consumer.
+            config.getConfigurer().accept(javalinConfig);
+        });
+    }
+
+    /**
+     * Configures response compression.
+     *
+     * @param javalinConfig The Javalin configuration.
+     * @param config The application configuration.
+     */
+    private static void compression(JavalinConfig javalinConfig, RestConfiguration config) {
+        if (!config.isCompression()) {
+            javalinConfig.http.disableCompression();
+            return;
+        }
+
+        var brotli = CompressionStrategy.Companion.brotliImplAvailable() ? new Brotli() : null;
+        var strategy = new CompressionStrategy(brotli, new Gzip());
+        strategy.setDefaultMinSizeForCompression(config.getCompressionThreshold());
+        javalinConfig.http.customCompression(strategy);
+
+        if (config.getCompressionCacheSize() > 0) {
+            javalinConfig.appData(RestApplication.COMPRESSION_CACHE, new CompressionCache(
+                    strategy.getCompressors(), config.getCompressionCacheSize()));
+        }
+    }
+
+    /**
+     * Scans the package for annotated methods.
+     *
+     * @param classLoader The class loader to scan with.
+     * @param packageName The package to scan.
+     * @return A lookup for annotated methods.
+     */
+    private static Function<Class<? extends Annotation>, Set<Method>> scan(
+            ClassLoader classLoader, String packageName) {
+        var reflections = new Reflections(new ConfigurationBuilder()
                 .forPackage(packageName, classLoader)
+                .filterInputsBy(new FilterBuilder().includePackage(packageName))
                 .addScanners(
                         Scanners.TypesAnnotated,
                         Scanners.MethodsAnnotated,
                         Scanners.SubTypes
                 ));
-        this.javalin = Javalin.create(javalinConfig -> {
-            // Apply defaults.
-            javalinConfig.jsonMapper(new JavalinGson());
-
-            // Invoke the configured consumer.
-            config.getConfigurer().accept(javalinConfig);
-        });
+        return reflections::getMethodsAnnotatedWith;
     }
 
     /**
@@ -82,29 +198,85 @@ public final class RestApplication {
      * @param handler The handler to register.
      */
     private void all(String path, Handler handler) {
-        this.javalin.get(path, handler);
-        this.javalin.post(path, handler);
-        this.javalin.delete(path, handler);
-        this.javalin.patch(path, handler);
-        this.javalin.put(path, handler);
+        for (var type : List.of(HandlerType.GET, HandlerType.POST,
+                HandlerType.DELETE, HandlerType.PATCH, HandlerType.PUT)) {
+            this.engine.add(type, path, handler);
+        }
     }
 
     /**
-     * Creates or returns a new instance of the method's class.
+     * Creates a handler for a route method.
      *
-     * @param method The method to create an instance for.
-     * @return The instance of the method's class.
+     * @param verb The HTTP method of the route.
+     * @param route The path of the route.
+     * @param instance The instance to invoke the method on.
+     * @param method The route method.
+     * @return The handler.
      */
-    private Object instance(Method method) {
-        var clazz = method.getDeclaringClass();
-        return this.instances.computeIfAbsent(clazz.getName(), key -> {
-            try {
-                return clazz.getDeclaredConstructor().newInstance();
-            } catch (Exception ex) {
-                log.warn("Failed to create instance for class: {}", clazz.getName(), ex);
-                return null;
+    private Handler handler(String verb, String route, Object instance, Method method) {
+        var invoker = new RequestHandler(this, verb, route, instance, method);
+        Handler handler = invoker;
+
+        var coalesced = method.getAnnotation(Coalesced.class);
+        if (coalesced != null) {
+            handler = new CoalescingHandler(invoker, coalesced);
+        }
+
+        var cached = method.getAnnotation(Cached.class);
+        if (cached != null) {
+            handler = new CachingHandler(handler, cached);
+        }
+
+        // Rate limits apply before the cache, so cached responses count too.
+        var limit = method.getAnnotation(RateLimit.class);
+        if (limit != null) {
+            handler = new RateLimitingHandler(handler,
+                    new RateLimiter(limit, this.config.getRateLimitClients()),
+                    this.config.getClientResolver());
+        }
+
+        return handler;
+    }
+
+    /**
+     * Constructs every class which declares routes, every registered component, and the components they depend on.
+     * Independent components are constructed in parallel.
+     */
+    private void construct() {
+        var classes = new LinkedHashSet<Class<?>>();
+        for (var annotation : ROUTE_ANNOTATIONS) {
+            for (var method : this.reflector.apply(annotation)) {
+                classes.add(method.getDeclaringClass());
             }
-        });
+        }
+        classes.addAll(this.config.getComponents().keySet());
+
+        var start = System.nanoTime();
+        var executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(classes.size(), Runtime.getRuntime().availableProcessors())),
+                runnable -> {
+                    var thread = new Thread(runnable, "magix-rest-startup");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            this.injector.start(classes, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        log.debug("Constructed components in {} ms.",
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * Returns the instance of the method's class.
+     *
+     * @param method The method to return the instance for.
+     * @return The instance of the method's class, or null if it couldn't be constructed.
+     */
+    private Object instance(Method method) {
+        return this.injector.get(method.getDeclaringClass());
     }
 
     /**
@@ -114,7 +286,7 @@ public final class RestApplication {
      * @param <T> The type of annotation the handler is for.
      */
     private <T extends Annotation> void register(Class<T> annotation, RouteHandler<T> handler) {
-        var all = this.reflector.getMethodsAnnotatedWith(annotation);
+        var all = this.reflector.apply(annotation);
         for (var method : all) try {
             var instance = this.instance(method);
             var value = method.getAnnotation(annotation);
@@ -136,7 +308,7 @@ public final class RestApplication {
             Class<S> underlying,
             RouteHandler<S> handler) {
         // Register duplicate annotations.
-        var all = this.reflector.getMethodsAnnotatedWith(annotation);
+        var all = this.reflector.apply(annotation);
         for (var method : all) try {
             var instance = this.instance(method);
             var values = method.getAnnotationsByType(underlying);
@@ -165,9 +337,10 @@ public final class RestApplication {
             Function<S, String> route,
             HandlerType type) {
         this.register(annotation, underlying, (handler, handle, method) -> {
-            this.javalin.addHttpHandler(
-                    type, route.apply(handler),
-                    new RequestHandler(handle, method)
+            var path = route.apply(handler);
+            this.engine.add(
+                    type, path,
+                    this.handler(type.name(), path, handle, method)
             );
         });
     }
@@ -176,48 +349,216 @@ public final class RestApplication {
      * Registers all the routes in the application.
      */
     public void register() {
+        this.construct();
+
+        this.register(ExceptionHandler.class, (annotation, instance, method) -> {
+            var mapper = new ExceptionMapper(instance, method);
+            for (var type : annotation.value()) {
+                this.errors.register(type, mapper);
+            }
+            log.debug("Registering exception handler: {}", method.getName());
+        });
+
         this.register(Route.class, (annotation, instance, method) -> {
-            this.all(annotation.value(), new RequestHandler(instance, method));
+            this.all(annotation.value(), this.handler("*", annotation.value(), instance, method));
             log.debug("Registering route: {}", method.getName());
         });
 
         this.register(NotFound.class, (annotation, instance, method) -> {
-            this.javalin.error(HttpStatus.NOT_FOUND, new RequestHandler(instance, method));
+            this.engine.notFound(this.handler("*", "404", instance, method));
             log.debug("Registering status handler '404': {}", method.getName());
         });
 
+        this.register(WebSocket.class, (annotation, instance, method) -> {
+            var route = new SocketRoute(instance, method, annotation, this.config.getGson());
+            this.engine.socket(annotation.value(), route::configure);
+            log.debug("Registering socket route: {}", method.getName());
+        });
+
         /// <editor-fold desc="Registering Routes" defaultstate="collapsed">
         this.register(GETs.class, GET.class, (annotation, instance, method) -> {
-            this.javalin.get(annotation.value(), new RequestHandler(instance, method));
+            this.engine.add(HandlerType.GET, annotation.value(),
+                    this.handler("GET", annotation.value(), instance, method));
             log.debug("Registering GET route: {}", method.getName());
         });
 
         this.register(POSTs.class, POST.class, (annotation, instance, method) -> {
-            this.javalin.post(annotation.value(), new RequestHandler(instance, method));
+            this.engine.add(HandlerType.POST, annotation.value(),
+                    this.handler("POST", annotation.value(), instance, method));
             log.debug("Registering POST route: {}", method.getName());
         });
 
         this.register(PUTs.class, PUT.class, (annotation, instance, method) -> {
-            this.javalin.put(annotation.value(), new RequestHandler(instance, method));
+            this.engine.add(HandlerType.PUT, annotation.value(),
+                    this.handler("PUT", annotation.value(), instance, method));
             log.debug("Registering PUT route: {}", method.getName());
         });
 
         this.register(PATCHs.class, PATCH.class, (annotation, instance, method) -> {
-            this.javalin.patch(annotation.value(), new RequestHandler(instance, method));
+            this.engine.add(HandlerType.PATCH, annotation.value(),
+                    this.handler("PATCH", annotation.value(), instance, method));
             log.debug("Registering PATCH route: {}", method.getName());
         });
 
         this.register(DELETEs.class, DELETE.class, (annotation, instance, method) -> {
-            this.javalin.put(annotation.value(), new RequestHandler(instance, method));
+            this.engine.add(HandlerType.DELETE, annotation.value(),
+                    this.handler("DELETE", annotation.value(), instance, method));
             log.debug("Registering DELETE route: {}", method.getName());
         });
         /// </editor-fold>
+
+        // Register the metrics endpoint.
+        var metricsPath = this.config.getMetricsPath();
+        if (metricsPath != null && this.metrics != null) {
+            this.engine.add(HandlerType.GET, metricsPath, ctx -> ctx
+                    .contentType("text/plain; version=0.0.4")
+                    .result(this.metrics.scrape()));
+            log.debug("Registering metrics endpoint: {}", metricsPath);
+        }
+
+        // Register the readiness endpoint.
+        var readinessPath = this.config.getReadinessPath();
+        if (readinessPath != null) {
+            this.engine.add(HandlerType.GET, readinessPath, ctx -> {
+                var state = this.lifecycle.getState();
+                ctx
+                        .status(state == Lifecycle.State.READY ?
+                                HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                        .result(state.name());
+            });
+            log.debug("Registering readiness endpoint: {}", readinessPath);
+        }
+    }
+
+    /**
+     * Returns a constructed component.
+     * This is either a registered component, a {@link moe.seikimo.rest.annotations.Component}, or a class with routes.
+     *
+     * @param type The type of the component.
+     * @return The component, or null if it wasn't constructed.
+     */
+    public <T> T getComponent(Class<T> type) {
+        return type.cast(this.injector.get(type));
+    }
+
+    /**
+     * @return The configuration of the application.
+     */
+    public RestConfiguration getConfig() {
+        return this.config;
+    }
+
+    /**
+     * @return The server which routes requests to the application.
+     */
+    public HttpEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * @return The handler concurrency limiter, or null if concurrency is unbounded.
+     */
+    public ConcurrencyLimiter getLimiter() {
+        return this.limiter;
+    }
+
+    /**
+     * @return The adaptive load shedder, or null if load shedding is disabled.
+     */
+    public LoadShedder getShedder() {
+        return this.shedder;
+    }
+
+    /**
+     * @return The lifecycle of the application.
+     */
+    public Lifecycle getLifecycle() {
+        return this.lifecycle;
+    }
+
+    /**
+     * @return The pipeline which handles exceptions thrown by route handlers.
+     */
+    public ErrorPipeline getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * @return The metrics registry, or null if metrics are disabled.
+     */
+    public MetricsRegistry getMetrics() {
+        return this.metrics;
     }
 
     /**
      * Binds on the specified port.
      */
     public void bind(int port) {
-        this.javalin.start(port);
+        this.engine.start(port);
+
+        if (this.config.isShutdownHook() && this.shutdownHook == null) {
+            this.shutdownHook = new Thread(this::stop, "magix-rest-shutdown");
+            Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+        }
+    }
+
+    /**
+     * Runs the warm-up methods, then marks the application as ready.
+     * This should be called once the application is bound.
+     */
+    public void warmUp() {
+        var methods = this.reflector.apply(WarmUp.class);
+        if (!methods.isEmpty()) {
+            var start = System.nanoTime();
+            try (var warmer = new Warmer(this.engine.port())) {
+                for (var method : methods) try {
+                    warmer.warmUp(this.instance(method), method);
+                } catch (Throwable ex) {
+                    log.warn("Failed to warm up method: {}", method.getName(), ex);
+                }
+            }
+
+            log.info("Warmed up {} methods in {} ms.", methods.size(),
+                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+
+        this.lifecycle.ready();
+    }
+
+    /**
+     * Stops the application gracefully.
+     * The server stops accepting connections, and requests on open connections receive a 503.
+     * Requests in flight have up to the drain timeout to complete before the server stops.
+     *
+     * @return The time it took to drain the requests in flight.
+     */
+    public Duration stop() {
+        if (!this.lifecycle.drain()) return Duration.ZERO;
+        var start = System.nanoTime();
+
+        // Stop accepting connections.
+        this.engine.close();
+
+        var drained = this.lifecycle.await(this.config.getDrainTimeout());
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        if (drained) {
+            log.info("Drained requests in {} ms.", elapsed.toMillis());
+        } else {
+            log.warn("Stopping with {} requests in flight after {} ms.",
+                    this.lifecycle.inFlight(), elapsed.toMillis());
+        }
+
+        this.engine.stop();
+        this.lifecycle.stopped();
+
+        // The hook isn't needed once stopped, unless this is the hook.
+        var hook = this.shutdownHook;
+        if (hook != null && hook != Thread.currentThread()) try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException ignored) {
+            // The JVM is already shutting down.
+        }
+
+        return elapsed;
     }
 }
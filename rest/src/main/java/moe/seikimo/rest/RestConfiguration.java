@@ -1,15 +1,104 @@
 package moe.seikimo.rest;
 
+import com.google.gson.Gson;
 import io.javalin.config.JavalinConfig;
+import io.javalin.http.Context;
 import lombok.Builder;
 import lombok.Builder.Default;
 import lombok.Data;
+import lombok.Singular;
+import moe.seikimo.rest.metrics.MetricsRegistry;
 
+import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Data
 @Builder
 public final class RestConfiguration {
     @Default private int port = 8080;
     @Default private Consumer<JavalinConfig> configurer = config -> {};
+    @Default private Discovery discovery = Discovery.SCAN;
+
+    // HTTP engine.
+    // The standalone engine routes with a radix tree on a minimal NIO server, without Javalin's plugins,
+    // WebSockets or compression; its handlers run on 'engineThreads' platform threads unless virtual threads are used.
+    @Default private Engine engine = Engine.JAVALIN;
+    @Default private int engineThreads = 200;
+
+    // JSON encoding.
+    // When 'streamJson' is enabled, response bodies are written directly to the output stream.
+    @Default private Gson gson = new Gson();
+    @Default private boolean streamJson = false;
+
+    // Request bodies.
+    // Bodies are decoded while they are read; requests with a body over 'maxBodySize' bytes receive a 413.
+    @Default private long maxBodySize = 1_000_000;
+
+    // Response compression.
+    // Brotli is preferred over gzip when brotli4j is on the classpath.
+    // 'compressionCacheSize' bounds the amount of bodies kept by the precompressed cache.
+    @Default private boolean compression = true;
+    @Default private int compressionThreshold = 1500;
+    @Default private int compressionCacheSize = 256;
+
+    // Streaming responses.
+    // Clients of an EventStream which fall more than 'streamBuffer' items behind are disconnected.
+    @Default private int streamBuffer = 1024;
+
+    // Route metrics.
+    // When 'metricsPath' is set, metrics are served there in the Prometheus text format.
+    @Default private MetricsRegistry metrics = null;
+    @Default private String metricsPath = null;
+
+    // Error handling.
+    // In production, unhandled exceptions are answered with a compact body instead of a stack trace.
+    // At most 'errorLogLimit' exceptions are logged per second; 0 logs every exception.
+    @Default private boolean productionErrors = false;
+    @Default private int errorLogLimit = 10;
+
+    // Handler execution.
+    // When 'maxConcurrency' is positive, requests over the limit wait up to 'queueTimeout' milliseconds.
+    @Default private boolean virtualThreads = false;
+    @Default private int maxConcurrency = 0;
+    @Default private long queueTimeout = 30_000;
+
+    // Load shedding.
+    // When 'latencyTarget' is positive, the amount of concurrent handlers adapts to keep their average latency (ms) below it.
+    // Requests over the adaptive limit are rejected with a 503 instead of waiting.
+    @Default private long latencyTarget = 0;
+    @Default private int adaptiveMinLimit = 8;
+    @Default private int adaptiveMaxLimit = 1024;
+
+    // Rate limiting.
+    // Limits are configured per route with @RateLimit.
+    // 'clientResolver' identifies the client of a request; the address of the connection is used when it is null.
+    // Behind a proxy which sets forwarding headers, use RequestUtils::ip; otherwise clients can pick their own identity.
+    // 'rateLimitClients' is the amount of clients tracked per route; further clients share one limit until idle clients are swept.
+    @Default private Function<Context, String> clientResolver = null;
+    @Default private int rateLimitClients = 10_000;
+
+    // Components.
+    // Registered components are injected into the constructors of routes and @Component classes, by type.
+    // Each supplier is called once at startup; independent components are constructed in parallel.
+    @Singular private Map<Class<?>, Supplier<?>> components;
+
+    // Lifecycle.
+    // Methods annotated with @WarmUp run before the application is ready; 'readinessPath' answers 503 until then.
+    // When stopping, new requests receive a 503 while requests in flight have 'drainTimeout' milliseconds to complete.
+    // When 'shutdownHook' is enabled, the application is stopped this way when the JVM shuts down; it is off by default.
+    @Default private String readinessPath = null;
+    @Default private long drainTimeout = 30_000;
+    @Default private boolean shutdownHook = false;
+
+    public enum Discovery {
+        SCAN, // Scan the classpath using Reflections.
+        INDEX // Read the index generated by the route processor.
+    }
+
+    public enum Engine {
+        JAVALIN, // Serve with Javalin, on Jetty.
+        STANDALONE // Serve with the built-in NIO server and radix-tree router.
+    }
 }
@@ -0,0 +1,90 @@
+package moe.seikimo.rest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Route discovery backed by the index written by the route processor.
+ * Only the classes listed in the index are inspected.
+ */
+@Slf4j
+public final class RouteIndex {
+    /**
+     * The location of the index on the classpath.
+     */
+    public static final String LOCATION = "META-INF/magix-rest/routes";
+
+    private final List<Method> methods;
+
+    private RouteIndex(List<Method> methods) {
+        this.methods = methods;
+    }
+
+    /**
+     * Loads every index visible to the class loader.
+     *
+     * @param classLoader The class loader to load the index and classes with.
+     * @param packageName Only classes in this package are included.
+     * @return The route index.
+     */
+    static RouteIndex load(ClassLoader classLoader, String packageName) {
+        var methods = new ArrayList<Method>();
+        var prefix = packageName.isEmpty() ? "" : packageName + ".";
+
+        try {
+            var resources = classLoader.getResources(LOCATION);
+            while (resources.hasMoreElements()) {
+                var url = resources.nextElement();
+                try (var reader = new BufferedReader(new InputStreamReader(
+                        url.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        var name = line.trim();
+                        if (name.isEmpty() || !name.startsWith(prefix)) continue;
+
+                        try {
+                            var clazz = Class.forName(name, false, classLoader);
+                            methods.addAll(List.of(clazz.getDeclaredMethods()));
+                        } catch (ClassNotFoundException ex) {
+                            log.warn("Indexed route class no longer exists: {}", name);
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to read the route index.", ex);
+        }
+
+        if (methods.isEmpty()) {
+            log.warn("No routes were found in the route index for package: {}", packageName);
+        }
+
+        return new RouteIndex(methods);
+    }
+
+    /**
+     * Fetches all indexed methods with the annotation.
+     *
+     * @param annotation The annotation.
+     * @return The annotated methods.
+     */
+    Set<Method> getMethodsAnnotatedWith(Class<? extends Annotation> annotation) {
+        var result = new HashSet<Method>();
+        for (var method : this.methods) {
+            if (method.isAnnotationPresent(annotation)) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package moe.seikimo.rest;
+
+import moe.seikimo.handler.DataReceiver;
+
+/**
+ * A receiver of WebSocket messages which is notified when its connection ends.
+ */
+public interface SocketReceiver extends DataReceiver {
+    /**
+     * Invoked when the connection is closed.
+     *
+     * @param status The close status code.
+     * @param reason The close reason, or null.
+     */
+    default void onClose(int status, String reason) {}
+
+    /**
+     * Invoked when the connection fails.
+     *
+     * @param error The error.
+     */
+    default void onError(Throwable error) {}
+}
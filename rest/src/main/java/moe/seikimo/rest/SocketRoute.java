@@ -0,0 +1,219 @@
+package moe.seikimo.rest;
+
+import com.google.gson.Gson;
+import io.javalin.websocket.WsCloseStatus;
+import io.javalin.websocket.WsConfig;
+import io.javalin.websocket.WsContext;
+import lombok.extern.slf4j.Slf4j;
+import moe.seikimo.handler.ObjectDataHandler;
+import moe.seikimo.handler.ObjectHandler;
+import moe.seikimo.rest.annotations.WebSocket;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Handles the connections of a {@link WebSocket} route.
+ * Messages are dispatched by type through an {@link ObjectHandler},
+ * resolved once for each class of receiver; receivers may be subclasses of the method's return type.
+ */
+@Slf4j
+final class SocketRoute {
+    private static final MethodType FACTORY_TYPE
+            = MethodType.methodType(Object.class, SocketSession.class);
+    private static final MethodType HANDLER_TYPE
+            = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle factory;
+    private final Class<?>[] messages;
+    private final ClassValue<ObjectHandler<Object, Object>> dispatchers = new ClassValue<>() {
+        @Override
+        protected ObjectHandler<Object, Object> computeValue(Class<?> receiver) {
+            return SocketRoute.this.dispatcher(receiver);
+        }
+    };
+    private final MessageCodec codec;
+    private final boolean binary;
+
+    private final Map<String, SocketSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * @param instance The instance to invoke the method on.
+     * @param method The method which creates the receiver of a connection.
+     * @param annotation The route annotation.
+     * @param gson The Gson instance to encode messages with.
+     * @throws IllegalArgumentException If the method has unsupported parameters.
+     */
+    SocketRoute(Object instance, Method method, WebSocket annotation, Gson gson) {
+        this.codec = new MessageCodec(gson, annotation.messages());
+        this.binary = annotation.binary();
+        this.factory = SocketRoute.factory(instance, method);
+        this.messages = annotation.messages();
+
+        // Resolve the declared receiver now, so inaccessible receiver methods fail at registration.
+        this.dispatchers.get(method.getReturnType());
+    }
+
+    /**
+     * Configures the route's handlers.
+     *
+     * @param config The WebSocket configuration.
+     */
+    void configure(WsConfig config) {
+        config.onConnect(ctx -> {
+            var session = new SocketSession(ctx, this.codec, this.binary);
+            try {
+                session.receiver = (Object) this.factory.invokeExact(session);
+            } catch (Throwable ex) {
+                log.warn("Exception encountered while creating a socket receiver.", ex);
+                ctx.closeSession(WsCloseStatus.SERVER_ERROR);
+                return;
+            }
+
+            this.sessions.put(ctx.sessionId(), session);
+        });
+        config.onMessage(ctx -> this.receive(ctx, () -> this.codec.decode(ctx.message())));
+        config.onBinaryMessage(ctx -> this.receive(ctx, () ->
+                this.codec.decode(ctx.data(), ctx.offset(), ctx.length())));
+        config.onClose(ctx -> {
+            var session = this.sessions.remove(ctx.sessionId());
+            if (session != null && session.receiver instanceof SocketReceiver receiver) {
+                receiver.onClose(ctx.status(), ctx.reason());
+            }
+        });
+        config.onError(ctx -> {
+            var session = this.sessions.get(ctx.sessionId());
+            if (session != null && session.receiver instanceof SocketReceiver receiver) {
+                receiver.onError(ctx.error());
+            } else {
+                log.debug("Socket connection failed.", ctx.error());
+            }
+        });
+    }
+
+    /**
+     * Decodes and dispatches an incoming message.
+     *
+     * @param ctx The context of the connection.
+     * @param decoder Decodes the message.
+     */
+    private void receive(WsContext ctx, Decoder decoder) {
+        var session = this.sessions.get(ctx.sessionId());
+        if (session == null || session.receiver == null) return;
+
+        Object message;
+        try {
+            message = decoder.decode();
+        } catch (IllegalArgumentException ex) {
+            ctx.closeSession(WsCloseStatus.INVALID_FRAME_PAYLOAD_DATA, ex.getMessage());
+            return;
+        }
+
+        session.dispatch(() -> {
+            try {
+                this.dispatch(session.receiver, message);
+            } catch (Exception ex) {
+                log.warn("Exception encountered while handling a socket message.", ex);
+            }
+        });
+    }
+
+    /**
+     * Invokes the receiver method for a message, if the receiver has one.
+     *
+     * @param receiver The receiver of the connection.
+     * @param message The message.
+     */
+    void dispatch(Object receiver, Object message) {
+        this.dispatchers.get(receiver.getClass()).handle(receiver, message);
+    }
+
+    /**
+     * Resolves the receiver method for each type of message.
+     *
+     * @param receiver The class of receiver.
+     * @return The dispatcher for receivers of the class.
+     */
+    @SuppressWarnings("unchecked")
+    private ObjectHandler<Object, Object> dispatcher(Class<?> receiver) {
+        var dispatcher = new ObjectHandler<Object, Object>();
+        for (var type : this.messages) {
+            var handler = SocketRoute.handler(receiver, type);
+            if (handler == null) continue;
+
+            ObjectDataHandler<Object, Object> dispatch = (instance, data) -> {
+                try {
+                    handler.invokeExact(instance, data);
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new UndeclaredThrowableException(ex);
+                }
+            };
+            dispatcher.register((Class<Object>) type, dispatch);
+        }
+        return dispatcher;
+    }
+
+    /**
+     * @param instance The instance to invoke the method on.
+     * @param method The method which creates the receiver of a connection.
+     * @return A handle which accepts the session, and returns the receiver.
+     */
+    private static MethodHandle factory(Object instance, Method method) {
+        try {
+            var handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(instance);
+            }
+
+            var parameters = method.getParameterTypes();
+            if (parameters.length == 0) {
+                handle = MethodHandles.dropArguments(handle, 0, SocketSession.class);
+            } else if (parameters.length != 1 || parameters[0] != SocketSession.class) {
+                throw new IllegalArgumentException("Socket routes can only accept a SocketSession: " + method.getName());
+            }
+
+            return handle.asType(FACTORY_TYPE);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException(
+                    "Unable to access socket route: " + method.getName(), ex);
+        }
+    }
+
+    /**
+     * Finds the public method of a receiver which accepts a type of message.
+     *
+     * @param receiver The type of receiver.
+     * @param type The type of message.
+     * @return A handle which accepts the receiver and the message, or null if there is no such method.
+     */
+    private static MethodHandle handler(Class<?> receiver, Class<?> type) {
+        for (var method : receiver.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) ||
+                    method.getParameterCount() != 1 ||
+                    method.getParameterTypes()[0] != type) continue;
+
+            try {
+                return MethodHandles.lookup().unreflect(method)
+                        .asType(MethodType.methodType(void.class, receiver, type))
+                        .asType(HANDLER_TYPE);
+            } catch (IllegalAccessException ex) {
+                throw new IllegalArgumentException(
+                        "Unable to access message handler: " + method.getName(), ex);
+            }
+        }
+
+        return null;
+    }
+
+    private interface Decoder {
+        Object decode();
+    }
+}
@@ -0,0 +1,118 @@
+package moe.seikimo.rest;
+
+import io.javalin.websocket.WsContext;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.BatchMode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection to a {@link moe.seikimo.rest.annotations.WebSocket} route.
+ * Outgoing messages are queued and written in batches, with one flush per batch.
+ * Messages sent while an incoming message is handled are flushed once the handler returns.
+ */
+@Slf4j
+public final class SocketSession {
+    private final WsContext context;
+    private final MessageCodec codec;
+    private final boolean binary;
+
+    private final Queue<Object> outgoing = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile boolean dispatching;
+
+    Object receiver;
+
+    /**
+     * @param context The context of the connection.
+     * @param codec The codec of the route.
+     * @param binary Whether to send binary frames.
+     */
+    SocketSession(WsContext context, MessageCodec codec, boolean binary) {
+        this.context = context;
+        this.codec = codec;
+        this.binary = binary;
+
+        context.session.getRemote().setBatchMode(BatchMode.ON);
+    }
+
+    /**
+     * @return The context of the connection, for its path parameters, headers and attributes.
+     */
+    public WsContext context() {
+        return this.context;
+    }
+
+    /**
+     * Sends a message.
+     *
+     * @param message The message; its type must be one of the route's message types when sending binary frames.
+     */
+    public void send(Object message) {
+        this.outgoing.add(this.codec.encode(message, this.binary));
+        if (!this.dispatching) this.flush();
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @param status The close status code.
+     * @param reason The close reason.
+     */
+    public void close(int status, String reason) {
+        this.flush();
+        this.context.closeSession(status, reason);
+    }
+
+    /**
+     * @return Whether the connection is open.
+     */
+    public boolean isOpen() {
+        return this.context.session.isOpen();
+    }
+
+    /**
+     * Handles an incoming message, deferring writes until the handler returns.
+     *
+     * @param handler The handler of the message.
+     */
+    void dispatch(Runnable handler) {
+        this.dispatching = true;
+        try {
+            handler.run();
+        } finally {
+            this.dispatching = false;
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes every queued message, then flushes once.
+     * Only one thread writes at a time; messages queued meanwhile are written by that thread.
+     */
+    void flush() {
+        while (!this.outgoing.isEmpty() && this.writing.compareAndSet(false, true)) {
+            try {
+                var remote = this.context.session.getRemote();
+                Object frame;
+                while ((frame = this.outgoing.poll()) != null) {
+                    if (frame instanceof String text) {
+                        remote.sendString(text);
+                    } else {
+                        remote.sendBytes((ByteBuffer) frame);
+                    }
+                }
+                remote.flush();
+            } catch (IOException ex) {
+                log.debug("Unable to write to the socket.", ex);
+                this.outgoing.clear();
+            } finally {
+                this.writing.set(false);
+            }
+        }
+    }
+}
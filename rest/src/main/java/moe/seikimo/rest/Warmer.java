@@ -0,0 +1,197 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import lombok.extern.slf4j.Slf4j;
+import moe.seikimo.rest.annotations.Route;
+import moe.seikimo.rest.annotations.WarmUp;
+import moe.seikimo.rest.annotations.methods.GET;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link WarmUp} methods before the application is ready.
+ * Routes are requested through the bound server, so the server, the router and the handler are all compiled.
+ * <p>
+ * Warm-up requests carry a secret token, so they bypass response caching, rate limiting and metrics.
+ */
+@Slf4j
+final class Warmer implements AutoCloseable {
+    private static final String HEADER = "X-Magix-Warm-Up";
+    private static final String TOKEN = UUID.randomUUID().toString();
+    private static final int DEFAULT_ITERATIONS = 10_000;
+
+    /**
+     * @param ctx The context of a request.
+     * @return Whether the request was sent by a warmer.
+     */
+    static boolean isWarmUp(Context ctx) {
+        return TOKEN.equals(ctx.header(HEADER));
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "magix-rest-warm-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(this.executor)
+            .build();
+    private final int concurrency = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private final String origin;
+
+    /**
+     * @param port The port the server is bound on.
+     */
+    Warmer(int port) {
+        this.origin = "http://localhost:" + port;
+    }
+
+    /**
+     * Warms up a method.
+     *
+     * @param instance The instance to invoke the method on.
+     * @param method The annotated method.
+     * @return The amount of warm-up requests which failed; always 0 for methods invoked directly.
+     * @throws IllegalArgumentException If the method can't be warmed up.
+     */
+    int warmUp(Object instance, Method method) throws Throwable {
+        var annotation = method.getAnnotation(WarmUp.class);
+        var path = Warmer.path(method, annotation);
+
+        var iterations = annotation.iterations();
+        if (iterations < 0) {
+            if (path == null) {
+                throw new IllegalArgumentException(
+                        "Methods which aren't GET routes need @WarmUp(iterations = ...): " + method.getName());
+            }
+            iterations = DEFAULT_ITERATIONS;
+        }
+
+        var start = System.nanoTime();
+        var failures = 0;
+        if (path != null) {
+            failures = this.request(path, iterations);
+        } else {
+            Warmer.invoke(instance, method, iterations);
+        }
+
+        log.debug("Warmed up {} ({} iterations) in {} ms.", method.getName(), iterations,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return failures;
+    }
+
+    /**
+     * Requests a route repeatedly.
+     * Requests are sent concurrently, so the route is also compiled for concurrent use.
+     *
+     * @param path The path to request.
+     * @param iterations The amount of requests to send.
+     * @return The amount of requests which failed, or weren't answered with a 2xx status.
+     */
+    private int request(String path, int iterations) throws InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(this.origin + path))
+                .header("User-Agent", "magix-rest-warmup")
+                .header(HEADER, TOKEN)
+                .build();
+
+        var window = new Semaphore(this.concurrency);
+        var failures = new AtomicInteger();
+        for (var i = 0; i < iterations; i++) {
+            window.acquire();
+            this.client.sendAsync(request, BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        if (ex != null || response.statusCode() / 100 != 2) {
+                            failures.incrementAndGet();
+                        }
+                        window.release();
+                    });
+        }
+
+        // Wait for the last requests to complete.
+        window.acquire(this.concurrency);
+
+        if (failures.get() > 0) {
+            log.warn("{} of {} warm-up requests to {} failed.", failures.get(), iterations, path);
+        }
+        return failures.get();
+    }
+
+    /**
+     * Releases the client's connections and threads.
+     */
+    @Override
+    public void close() {
+        // HttpClient can only be closed directly from Java 21.
+        if (this.client instanceof AutoCloseable closeable) try {
+            closeable.close();
+        } catch (Exception ex) {
+            log.debug("Failed to close the warm-up client.", ex);
+        }
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Invokes a method repeatedly.
+     *
+     * @param instance The instance to invoke the method on.
+     * @param method The method, which must have no parameters.
+     * @param iterations The amount of invocations.
+     */
+    private static void invoke(Object instance, Method method, int iterations) throws Throwable {
+        if (method.getParameterCount() != 0) {
+            throw new IllegalArgumentException(
+                    "Only GET routes and methods without parameters can be warmed up: " + method.getName());
+        }
+
+        var handle = MethodHandles.lookup().unreflect(method);
+        if (!Modifier.isStatic(method.getModifiers())) {
+            handle = handle.bindTo(instance);
+        }
+
+        for (var i = 0; i < iterations; i++) {
+            handle.invoke();
+        }
+    }
+
+    /**
+     * Finds the path to request for a method.
+     *
+     * @param method The annotated method.
+     * @param annotation The warm-up annotation.
+     * @return The path, or null if the method should be invoked directly.
+     * @throws IllegalArgumentException If the route has path parameters, and no path was given.
+     */
+    private static String path(Method method, WarmUp annotation) {
+        if (!annotation.value().isEmpty()) {
+            return annotation.value();
+        }
+
+        String route = null;
+        var routes = method.getAnnotationsByType(GET.class);
+        if (routes.length > 0) {
+            route = routes[0].value();
+        } else if (method.isAnnotationPresent(Route.class)) {
+            route = method.getAnnotation(Route.class).value();
+        }
+
+        if (route != null && (route.contains("{") || route.contains("<"))) {
+            throw new IllegalArgumentException(
+                    "The route has path parameters, so @WarmUp needs a path: " + method.getName());
+        }
+
+        return route;
+    }
+}
@@ -0,0 +1,36 @@
+package moe.seikimo.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the responses of a route in memory.
+ * Only successful GET responses with an in-memory body are cached.
+ * Cached responses are sent with an ETag, and matching {@code If-None-Match} requests receive a 304.
+ */
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cached {
+    /**
+     * @return The time a response stays cached, in milliseconds.
+     */
+    long ttl() default 60_000;
+
+    /**
+     * @return The maximum amount of responses to cache for the route.
+     */
+    int maxEntries() default 1024;
+
+    /**
+     * @return The request headers which produce different responses.
+     */
+    String[] headers() default {};
+
+    /**
+     * @return The query parameters which produce different responses.
+     */
+    String[] query() default {};
+}
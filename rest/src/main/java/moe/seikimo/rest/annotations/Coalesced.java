@@ -0,0 +1,27 @@
+package moe.seikimo.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Collapses identical concurrent GET requests to a route into one handler invocation.
+ * Requests which arrive while the handler runs wait for it, and receive a copy of its response.
+ * Responses which can't be copied (streamed or precompressed) are not shared;
+ * waiting requests then invoke the handler themselves.
+ */
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+    /**
+     * @return The request headers which produce different responses.
+     */
+    String[] headers() default {};
+
+    /**
+     * @return The query parameters which produce different responses.
+     */
+    String[] query() default {};
+}
@@ -0,0 +1,17 @@
+package moe.seikimo.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class which can be injected into the constructors of routes and other components.
+ * One instance is constructed at startup, once its own dependencies are constructed.
+ * Classes which declare routes are constructed the same way, without this annotation.
+ */
+
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Component {
+}
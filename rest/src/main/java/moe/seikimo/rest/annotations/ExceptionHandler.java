@@ -0,0 +1,18 @@
+package moe.seikimo.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This handles exceptions thrown by route handlers.
+ * If a handler throws one of the listed exceptions (or a subclass), the annotated method will be called.
+ * The method may take the exception and the {@code Request} as parameters.
+ */
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExceptionHandler {
+    Class<? extends Throwable>[] value();
+}
@@ -0,0 +1,40 @@
+package moe.seikimo.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the rate of requests to a route.
+ * Requests over the limit receive a 429 with a {@code Retry-After} header.
+ */
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+    /**
+     * @return The amount of requests allowed per period.
+     */
+    int value();
+
+    /**
+     * @return The length of a period, in milliseconds.
+     */
+    long period() default 1000;
+
+    /**
+     * @return The amount of requests allowed at once; 0 uses the amount allowed per period.
+     */
+    int burst() default 0;
+
+    /**
+     * @return Whether the limit is shared by all clients, or applies to each client.
+     */
+    Scope scope() default Scope.ROUTE;
+
+    enum Scope {
+        ROUTE, // One limit for every client of the route.
+        CLIENT // One limit for each client of the route.
+    }
+}
@@ -0,0 +1,27 @@
+package moe.seikimo.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a method repeatedly before the application is ready, so it is compiled before traffic arrives.
+ * On a GET route, the route is requested over the loopback interface, which warms up the whole request path.
+ * Any other method is invoked directly; it must have no parameters, and must set {@link #iterations()},
+ * since its side effects run on every invocation.
+ */
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WarmUp {
+    /**
+     * @return The path to request; required when the route has path parameters.
+     */
+    String value() default "";
+
+    /**
+     * @return The amount of times to invoke the method; GET routes are requested 10,000 times by default.
+     */
+    int iterations() default -1;
+}
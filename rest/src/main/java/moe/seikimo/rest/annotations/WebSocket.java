@@ -0,0 +1,35 @@
+package moe.seikimo.rest.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers a WebSocket route.
+ * The annotated method is called for each connection, and returns the receiver of the connection.
+ * It can accept a {@link moe.seikimo.rest.SocketSession} to send messages with.
+ * <p>
+ * Incoming messages are dispatched to the receiver method which accepts the message's type.
+ * Text frames are JSON envelopes: {@code {"type": "SimpleName", "data": {...}}}.
+ * Binary frames are a big-endian 2-byte index into {@link #messages()}, followed by the JSON data.
+ */
+
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WebSocket {
+    /**
+     * @return The path of the route.
+     */
+    String value();
+
+    /**
+     * @return The types of messages which can be sent and received.
+     */
+    Class<?>[] messages();
+
+    /**
+     * @return Whether outgoing messages are sent as binary frames instead of text frames.
+     */
+    boolean binary() default false;
+}
@@ -0,0 +1,16 @@
+package moe.seikimo.rest.annotations.params;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a handler parameter to the request body.
+ * The body is decoded as JSON while it is read, unless the parameter is a {@code String}, {@code byte[]} or {@code InputStream}.
+ */
+
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Body {
+}
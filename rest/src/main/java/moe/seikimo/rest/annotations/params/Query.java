@@ -0,0 +1,25 @@
+package moe.seikimo.rest.annotations.params;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a handler parameter to a query parameter.
+ * The value is converted to the type of the parameter.
+ */
+
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Query {
+    /**
+     * @return The name of the query parameter.
+     */
+    String value();
+
+    /**
+     * @return Whether the request should fail if the value is missing.
+     */
+    boolean required() default true;
+}
@@ -0,0 +1,571 @@
+package moe.seikimo.rest.engine;
+
+import io.javalin.http.ContentTooLargeResponse;
+import io.javalin.http.HttpResponseException;
+import io.javalin.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A client connection to the standalone engine.
+ * Requests are parsed on the selector thread, and handled one at a time on a worker.
+ * While a request is handled, the connection isn't read; pipelined requests wait in the buffer.
+ */
+@Slf4j
+final class HttpConnection {
+    private static final int MAX_HEAD = 8192;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final StandaloneEngine engine;
+    private final SocketChannel channel;
+    private final String remoteAddress;
+    private final long maxBody;
+    private SelectionKey key;
+
+    private ByteBuffer input = ByteBuffer.allocate(MAX_HEAD);
+    private ByteBuffer[] output;
+    private boolean keepAlive;
+
+    // The state of a request whose head was parsed.
+    private int scanned;
+    private String method, target, protocol;
+    private List<String[]> headers;
+    private long contentLength;
+    private boolean chunked;
+
+    // The state of the body being decoded; the body is null until the head is parsed.
+    private ByteArrayOutputStream body;
+    private long remaining;
+    private Chunk chunk;
+
+    private volatile boolean busy;
+    private long lastActive = System.currentTimeMillis();
+
+    /**
+     * @param engine The engine which accepted the connection.
+     * @param channel The channel of the connection.
+     * @param maxBody The maximum size of a request body, in bytes.
+     */
+    HttpConnection(StandaloneEngine engine, SocketChannel channel, long maxBody) throws IOException {
+        this.engine = engine;
+        this.channel = channel;
+        this.maxBody = maxBody;
+        this.remoteAddress = channel.getRemoteAddress() instanceof InetSocketAddress address ?
+                address.getAddress().getHostAddress() : "unknown";
+    }
+
+    /**
+     * @param key The key of the connection with the selector.
+     */
+    void key(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * @param now The current time, in milliseconds.
+     * @param timeout The time a connection can be idle, in milliseconds.
+     * @return Whether the connection is idle, and has no request in progress.
+     */
+    boolean idle(long now, long timeout) {
+        return !this.busy && now - this.lastActive > timeout;
+    }
+
+    /**
+     * Handles the ready operations of the connection.
+     * This is called on the selector thread.
+     */
+    void ready() {
+        if (!this.key.isValid()) return;
+
+        if (this.key.isWritable()) {
+            this.flush();
+        } else if (this.key.isReadable()) {
+            this.read();
+        }
+    }
+
+    /**
+     * Reads from the channel, and processes a request if one is complete.
+     */
+    private void read() {
+        try {
+            if (this.channel.read(this.input) < 0) {
+                this.close();
+                return;
+            }
+        } catch (IOException ex) {
+            this.close();
+            return;
+        }
+
+        this.lastActive = System.currentTimeMillis();
+        this.process();
+    }
+
+    /**
+     * Processes the next buffered request, or waits for more data.
+     */
+    private void process() {
+        RawRequest request;
+        try {
+            request = this.parse();
+        } catch (HttpResponseException ex) {
+            this.reject(ex.getStatus(), ex.getMessage());
+            return;
+        } catch (RuntimeException ex) {
+            log.warn("Unable to parse a request; closing the connection.", ex);
+            this.close();
+            return;
+        }
+
+        if (request == null) {
+            this.key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+
+        // Stop reading until the response is written.
+        this.busy = true;
+        this.key.interestOps(0);
+        this.engine.dispatch(this, request);
+    }
+
+    /**
+     * Sends a response.
+     * This is called on a worker; the write is attempted immediately, and completed by the selector if needed.
+     *
+     * @param output The encoded response.
+     * @param keepAlive Whether the connection stays open after the response.
+     */
+    void send(ByteBuffer[] output, boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        try {
+            this.channel.write(output);
+        } catch (IOException ex) {
+            this.engine.execute(this::close);
+            return;
+        }
+
+        if (HttpConnection.remaining(output)) {
+            this.output = output;
+            this.engine.execute(() -> {
+                if (this.key.isValid()) this.key.interestOps(SelectionKey.OP_WRITE);
+            });
+        } else {
+            this.engine.execute(this::completed);
+        }
+    }
+
+    /**
+     * Continues writing a response.
+     */
+    private void flush() {
+        try {
+            this.channel.write(this.output);
+        } catch (IOException ex) {
+            this.close();
+            return;
+        }
+
+        if (!HttpConnection.remaining(this.output)) {
+            this.output = null;
+            this.completed();
+        }
+    }
+
+    /**
+     * Continues with the next request once a response is written.
+     */
+    private void completed() {
+        this.busy = false;
+        this.lastActive = System.currentTimeMillis();
+        if (!this.keepAlive || !this.key.isValid()) {
+            this.close();
+        } else {
+            this.process();
+        }
+    }
+
+    /**
+     * Responds to a malformed request, and closes the connection.
+     *
+     * @param status The status of the response.
+     * @param message The body of the response.
+     */
+    private void reject(int status, String message) {
+        var body = message.getBytes(StandardCharsets.UTF_8);
+        var head = ("HTTP/1.1 %d %s\r\nContent-Type: text/plain\r\nContent-Length: %d\r\nConnection: close\r\n\r\n")
+                .formatted(status, HttpStatus.forStatus(status).getMessage(), body.length)
+                .getBytes(StandardCharsets.ISO_8859_1);
+
+        this.busy = true;
+        this.key.interestOps(0);
+        this.send(new ByteBuffer[] {ByteBuffer.wrap(head), ByteBuffer.wrap(body)}, false);
+    }
+
+    /**
+     * Closes the connection.
+     * This is called on the selector thread.
+     */
+    void close() {
+        this.key.cancel();
+        this.engine.closed(this);
+        try {
+            this.channel.close();
+        } catch (IOException ex) {
+            log.debug("Unable to close connection.", ex);
+        }
+    }
+
+    /// <editor-fold desc="Parsing">
+
+    /**
+     * Parses the next request in the buffer.
+     * The head is parsed once it is complete; the body is then decoded as it arrives,
+     * so the buffer only holds the data which hasn't been decoded yet.
+     *
+     * @return The request, or null if it isn't complete yet.
+     * @throws HttpResponseException If the request is malformed, or too large.
+     */
+    private RawRequest parse() {
+        if (this.body == null) {
+            var data = this.input.array();
+            var limit = this.input.position();
+
+            var end = HttpConnection.find(data, Math.max(0, this.scanned - 3), limit);
+            if (end < 0) {
+                if (limit >= MAX_HEAD) {
+                    throw new HttpResponseException(431, "Request headers are too large.");
+                }
+                this.scanned = limit;
+                return null;
+            }
+
+            this.head(data, end);
+            this.consume(end + 4);
+            this.scanned = 0;
+            this.body = new ByteArrayOutputStream((int) Math.min(this.contentLength, MAX_HEAD));
+            this.remaining = this.chunked ? 0 : this.contentLength;
+            this.chunk = Chunk.SIZE;
+            this.expect();
+        }
+
+        var complete = this.chunked ? this.dechunk() : this.fill();
+        if (!complete) return null;
+
+        var request = this.request(this.body.toByteArray());
+        this.body = null;
+        return request;
+    }
+
+    /**
+     * Parses the head of a request.
+     *
+     * @param data The buffered data.
+     * @param end The offset of the blank line which ends the head.
+     */
+    private void head(byte[] data, int end) {
+        var lines = new String(data, 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+        var line = lines[0].split(" ");
+        if (line.length != 3 || !line[2].startsWith("HTTP/1.")) {
+            throw new HttpResponseException(400, "Malformed request line.");
+        }
+
+        this.method = line[0];
+        this.target = line[1];
+        this.protocol = line[2];
+        this.headers = new ArrayList<>(lines.length - 1);
+        this.contentLength = -1;
+        this.chunked = false;
+
+        for (var i = 1; i < lines.length; i++) {
+            // Folded lines and whitespace before the colon are rejected, as RFC 9112 requires.
+            var colon = lines[i].indexOf(':');
+            if (colon <= 0 || !HttpConnection.isToken(lines[i], colon)) {
+                throw new HttpResponseException(400, "Malformed header.");
+            }
+
+            var name = lines[i].substring(0, colon);
+            var value = lines[i].substring(colon + 1).trim();
+            this.headers.add(new String[] {name, value});
+
+            if (name.equalsIgnoreCase("Content-Length")) {
+                var length = HttpConnection.parseLength(value);
+                if (this.contentLength >= 0 && this.contentLength != length) {
+                    throw new HttpResponseException(400, "Conflicting Content-Length.");
+                }
+                this.contentLength = length;
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                if (!value.equalsIgnoreCase("chunked")) {
+                    throw new HttpResponseException(501, "Unsupported transfer encoding.");
+                }
+                if (this.chunked) {
+                    throw new HttpResponseException(400, "Repeated Transfer-Encoding.");
+                }
+                this.chunked = true;
+            }
+        }
+
+        // A request with both could be framed differently by a proxy in front of the server.
+        if (this.chunked && this.contentLength >= 0) {
+            throw new HttpResponseException(400, "Content-Length and Transfer-Encoding are both set.");
+        }
+        if (this.contentLength < 0) {
+            this.contentLength = 0;
+        }
+        if (this.contentLength > this.maxBody) {
+            throw new ContentTooLargeResponse("The request body exceeds %d bytes.".formatted(this.maxBody));
+        }
+    }
+
+    /**
+     * Moves buffered bytes into a body with a known length.
+     *
+     * @return Whether the body is complete.
+     */
+    private boolean fill() {
+        var take = (int) Math.min(this.remaining, this.input.position());
+        this.body.write(this.input.array(), 0, take);
+        this.consume(take);
+        this.remaining -= take;
+        return this.remaining == 0;
+    }
+
+    /**
+     * Decodes buffered bytes of a chunked body.
+     * Decoding continues where the previous call stopped, so every byte is decoded once.
+     *
+     * @return Whether the body is complete.
+     */
+    private boolean dechunk() {
+        while (true) {
+            var data = this.input.array();
+            var limit = this.input.position();
+
+            switch (this.chunk) {
+                case SIZE -> {
+                    var lineEnd = HttpConnection.line(data, 0, limit);
+                    if (lineEnd < 0) {
+                        if (limit >= MAX_HEAD) {
+                            throw new HttpResponseException(400, "Malformed chunk size.");
+                        }
+                        return false;
+                    }
+
+                    this.remaining = HttpConnection.parseChunkSize(data, lineEnd);
+                    if (this.body.size() + this.remaining > this.maxBody) {
+                        throw new ContentTooLargeResponse("The request body exceeds %d bytes.".formatted(this.maxBody));
+                    }
+                    this.consume(lineEnd + 2);
+                    this.chunk = this.remaining == 0 ? Chunk.TRAILER : Chunk.DATA;
+                }
+                case DATA -> {
+                    var take = (int) Math.min(this.remaining, limit);
+                    if (take == 0) return false;
+
+                    this.body.write(data, 0, take);
+                    this.consume(take);
+                    this.remaining -= take;
+                    if (this.remaining == 0) this.chunk = Chunk.END;
+                }
+                case END -> {
+                    if (limit < 2) return false;
+                    if (data[0] != '\r' || data[1] != '\n') {
+                        throw new HttpResponseException(400, "Malformed chunk.");
+                    }
+                    this.consume(2);
+                    this.chunk = Chunk.SIZE;
+                }
+                case TRAILER -> {
+                    // Trailers are skipped; they end with a blank line.
+                    var lineEnd = HttpConnection.line(data, 0, limit);
+                    if (lineEnd < 0) {
+                        if (limit >= MAX_HEAD) {
+                            throw new HttpResponseException(431, "Request trailers are too large.");
+                        }
+                        return false;
+                    }
+                    this.consume(lineEnd + 2);
+                    if (lineEnd == 0) return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes decoded bytes from the start of the buffer.
+     *
+     * @param count The amount of bytes to remove.
+     */
+    private void consume(int count) {
+        var data = this.input.array();
+        var limit = this.input.position();
+        System.arraycopy(data, count, data, 0, limit - count);
+        this.input.position(limit - count);
+    }
+
+    /**
+     * Asks the client to send the body, if it is waiting for permission.
+     */
+    private void expect() {
+        if (this.input.position() > 0 || (!this.chunked && this.contentLength == 0)) return;
+
+        for (var header : this.headers) {
+            if (header[0].equalsIgnoreCase("Expect") && header[1].equalsIgnoreCase("100-continue")) try {
+                this.channel.write(ByteBuffer.wrap(CONTINUE));
+            } catch (IOException ex) {
+                log.debug("Unable to send 100 Continue.", ex);
+            }
+        }
+    }
+
+    /**
+     * Creates the parsed request.
+     *
+     * @param body The body of the request.
+     * @return The request.
+     */
+    private RawRequest request(byte[] body) {
+        var target = this.target;
+
+        // Requests to proxies use the absolute form.
+        if (!target.startsWith("/")) {
+            var scheme = target.indexOf("://");
+            var path = scheme < 0 ? -1 : target.indexOf('/', scheme + 3);
+            target = path < 0 ? "/" : target.substring(path);
+        }
+
+        var query = target.indexOf('?');
+        return new RawRequest(
+                this.method,
+                query < 0 ? target : target.substring(0, query),
+                query < 0 ? null : target.substring(query + 1),
+                this.protocol, this.headers, body, this.remoteAddress);
+    }
+
+    /**
+     * @param value The value of a Content-Length header.
+     * @return The length.
+     * @throws HttpResponseException If the value isn't a plain decimal number.
+     */
+    private static long parseLength(String value) {
+        if (value.isEmpty() || value.length() > 18) {
+            throw new HttpResponseException(400, "Malformed Content-Length.");
+        }
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new HttpResponseException(400, "Malformed Content-Length.");
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Parses the size of a chunk; extensions are ignored.
+     *
+     * @param data The buffered data, starting with the size line.
+     * @param lineEnd The offset of the CRLF which ends the line.
+     * @return The size of the chunk.
+     * @throws HttpResponseException If the size isn't a plain hexadecimal number.
+     */
+    private static long parseChunkSize(byte[] data, int lineEnd) {
+        var size = 0L;
+        var digits = 0;
+        for (var i = 0; i < lineEnd; i++) {
+            var digit = Character.digit(data[i], 16);
+            if (digit < 0) {
+                // Only extensions and whitespace may follow the size.
+                if (digits > 0 && (data[i] == ';' || data[i] == ' ' || data[i] == '\t')) break;
+                throw new HttpResponseException(400, "Malformed chunk size.");
+            }
+
+            // Sizes over 8 digits can't fit in a request body.
+            if (++digits > 8) {
+                throw new HttpResponseException(400, "Malformed chunk size.");
+            }
+            size = size * 16 + digit;
+        }
+
+        if (digits == 0) {
+            throw new HttpResponseException(400, "Malformed chunk size.");
+        }
+        return size;
+    }
+
+    /**
+     * @param line A header line.
+     * @param end The offset of the colon.
+     * @return Whether the name of the header is a token, as defined by RFC 9110.
+     */
+    private static boolean isToken(String line, int end) {
+        for (var i = 0; i < end; i++) {
+            var c = line.charAt(i);
+            if (c <= ' ' || c >= 0x7f || "\"(),/:;<=>?@[\\]{}".indexOf(c) >= 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the blank line which ends the head of a request.
+     *
+     * @param data The buffered data.
+     * @param from The offset to start searching at.
+     * @param limit The end of the buffered data.
+     * @return The offset of the blank line, or -1 if there is none.
+     */
+    private static int find(byte[] data, int from, int limit) {
+        for (var i = from; i + 3 < limit; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the end of a line.
+     *
+     * @param data The buffered data.
+     * @param from The offset to start searching at.
+     * @param limit The end of the buffered data.
+     * @return The offset of the CRLF which ends the line, or -1 if there is none.
+     */
+    private static int line(byte[] data, int from, int limit) {
+        for (var i = from; i + 1 < limit; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /// </editor-fold>
+
+    /**
+     * @param buffers The buffers being written.
+     * @return Whether any of the buffers has bytes left to write.
+     */
+    private static boolean remaining(ByteBuffer[] buffers) {
+        for (var buffer : buffers) {
+            if (buffer.hasRemaining()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The part of a chunked body which is decoded next.
+     */
+    private enum Chunk {
+        SIZE, // The line with the size of the chunk.
+        DATA, // The data of the chunk.
+        END, // The CRLF after the data.
+        TRAILER // The trailers after the last chunk.
+    }
+}
@@ -0,0 +1,59 @@
+package moe.seikimo.rest.engine;
+
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import io.javalin.websocket.WsConfig;
+
+import java.util.function.Consumer;
+
+/**
+ * The server which routes requests to the handlers of an application.
+ */
+public interface HttpEngine {
+    /**
+     * Registers the handler of a route.
+     *
+     * @param type The HTTP method of the route.
+     * @param path The path template of the route.
+     * @param handler The handler of the route.
+     */
+    void add(HandlerType type, String path, Handler handler);
+
+    /**
+     * Registers the handler of requests which match no route.
+     *
+     * @param handler The handler.
+     */
+    void notFound(Handler handler);
+
+    /**
+     * Registers a WebSocket route.
+     *
+     * @param path The path of the route.
+     * @param config Configures the handlers of the route.
+     * @throws UnsupportedOperationException If the engine doesn't support WebSockets.
+     */
+    void socket(String path, Consumer<WsConfig> config);
+
+    /**
+     * Starts the server.
+     *
+     * @param port The port to bind on; 0 binds on any free port.
+     */
+    void start(int port);
+
+    /**
+     * @return The port the server is bound on.
+     */
+    int port();
+
+    /**
+     * Stops accepting connections; open connections are still served.
+     */
+    void close();
+
+    /**
+     * Stops the server, closing every connection.
+     */
+    void stop();
+}
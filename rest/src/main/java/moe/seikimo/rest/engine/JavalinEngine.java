@@ -0,0 +1,70 @@
+package moe.seikimo.rest.engine;
+
+import io.javalin.Javalin;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import io.javalin.http.HttpStatus;
+import io.javalin.websocket.WsConfig;
+import org.eclipse.jetty.server.NetworkConnector;
+
+import java.util.function.Consumer;
+
+/**
+ * Serves an application with Javalin, on Jetty.
+ */
+public final class JavalinEngine implements HttpEngine {
+    private final Javalin javalin;
+
+    /**
+     * @param javalin The configured Javalin instance.
+     */
+    public JavalinEngine(Javalin javalin) {
+        this.javalin = javalin;
+    }
+
+    @Override
+    public void add(HandlerType type, String path, Handler handler) {
+        this.javalin.addHttpHandler(type, path, handler);
+    }
+
+    @Override
+    public void notFound(Handler handler) {
+        this.javalin.error(HttpStatus.NOT_FOUND, handler);
+    }
+
+    @Override
+    public void socket(String path, Consumer<WsConfig> config) {
+        this.javalin.ws(path, config);
+    }
+
+    @Override
+    public void start(int port) {
+        this.javalin.start(port);
+    }
+
+    @Override
+    public int port() {
+        return this.javalin.port();
+    }
+
+    @Override
+    public void close() {
+        for (var connector : this.javalin.jettyServer().server().getConnectors()) {
+            if (connector instanceof NetworkConnector network) {
+                network.close();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        this.javalin.stop();
+    }
+
+    /**
+     * @return The Javalin instance.
+     */
+    public Javalin getJavalin() {
+        return this.javalin;
+    }
+}
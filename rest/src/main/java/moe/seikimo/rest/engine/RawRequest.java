@@ -0,0 +1,40 @@
+package moe.seikimo.rest.engine;
+
+import java.util.List;
+
+/**
+ * A request parsed by the standalone engine.
+ *
+ * @param method The method of the request.
+ * @param path The path of the request, as it was sent.
+ * @param query The raw query string, or null if there is none.
+ * @param protocol The protocol of the request, such as {@code HTTP/1.1}.
+ * @param headers The headers of the request, as name and value pairs.
+ * @param body The body of the request.
+ * @param remoteAddress The address of the client.
+ */
+record RawRequest(
+        String method, String path, String query, String protocol,
+        List<String[]> headers, byte[] body, String remoteAddress) {
+    /**
+     * @param name The name of the header, which is case-insensitive.
+     * @return The first value of the header, or null if it isn't present.
+     */
+    String header(String name) {
+        for (var header : this.headers) {
+            if (header[0].equalsIgnoreCase(name)) return header[1];
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether the connection should stay open after the response.
+     */
+    boolean keepAlive() {
+        var connection = this.header("Connection");
+        if ("HTTP/1.0".equals(this.protocol)) {
+            return "keep-alive".equalsIgnoreCase(connection);
+        }
+        return !"close".equalsIgnoreCase(connection);
+    }
+}
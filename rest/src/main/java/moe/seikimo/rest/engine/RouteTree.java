@@ -0,0 +1,275 @@
+package moe.seikimo.rest.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A radix tree of path templates.
+ * Static text is compressed into shared prefixes, and each {@code {param}} captures one path segment.
+ * Static text takes precedence over parameters, so {@code /users/me} wins over {@code /users/{id}}.
+ * <p>
+ * Matching doesn't allocate; parameters are recorded as offsets into the path,
+ * so their values are only created when they are read.
+ *
+ * @param <T> The type of value stored for each template.
+ */
+public final class RouteTree<T> {
+    private final Node<T> root = new Node<>("");
+    private int maxParameters;
+
+    /**
+     * Adds a template to the tree.
+     * Trailing slashes are ignored.
+     *
+     * @param template The path template, such as {@code /users/{id}/posts}.
+     * @param value The value to store for the template.
+     * @throws IllegalArgumentException If the template is invalid, or is already in the tree.
+     */
+    public void add(String template, T value) {
+        if (template.indexOf('<') >= 0 || template.indexOf('*') >= 0) {
+            throw new IllegalArgumentException("Only static text and {param} are supported: " + template);
+        }
+
+        var path = RouteTree.trim(template);
+        RouteTree.validate(template, path);
+
+        var names = new ArrayList<String>();
+        var node = this.root;
+
+        var index = 0;
+        while (index < path.length()) {
+            var open = path.indexOf('{', index);
+            if (open < 0) {
+                node = node.insert(path.substring(index));
+                break;
+            }
+
+            if (open > index) {
+                node = node.insert(path.substring(index, open));
+            }
+
+            var close = path.indexOf('}', open);
+            names.add(path.substring(open + 1, close));
+            if (node.parameter == null) {
+                node.parameter = new Node<>("");
+            }
+            node = node.parameter;
+            index = close + 1;
+        }
+
+        if (node.route != null) {
+            throw new IllegalArgumentException("Duplicate path: " + template);
+        }
+
+        node.route = new Route<>(template, names.toArray(String[]::new), value);
+        this.maxParameters = Math.max(this.maxParameters, names.size());
+    }
+
+    /**
+     * Finds the template which matches a path.
+     *
+     * @param path The path of the request.
+     * @param bounds Receives the start and end offset of each parameter; at least {@link #maxParameters()} * 2 long.
+     * @return The matched route, or null if no template matches.
+     */
+    public Route<T> match(String path, int[] bounds) {
+        return this.root.match(path, 0, RouteTree.end(path), bounds, 0);
+    }
+
+    /**
+     * @return The largest amount of parameters in a template.
+     */
+    public int maxParameters() {
+        return this.maxParameters;
+    }
+
+    /**
+     * Checks that every parameter of a template has a name, and spans a whole segment.
+     * This happens before the template is added, so an invalid template leaves the tree unchanged.
+     *
+     * @param template The path template.
+     * @param path The template without a trailing slash.
+     * @throws IllegalArgumentException If a parameter is invalid.
+     */
+    private static void validate(String template, String path) {
+        var open = path.indexOf('{');
+        while (open >= 0) {
+            var close = path.indexOf('}', open);
+            if (close < 0 || close == open + 1 || path.substring(open + 1, close).indexOf('{') >= 0) {
+                throw new IllegalArgumentException("Invalid parameter in path: " + template);
+            }
+            if (open == 0 || path.charAt(open - 1) != '/' ||
+                    (close + 1 < path.length() && path.charAt(close + 1) != '/')) {
+                throw new IllegalArgumentException("Parameters must span a whole segment: " + template);
+            }
+            open = path.indexOf('{', close);
+        }
+    }
+
+    /**
+     * @param path A path.
+     * @return The path without a trailing slash.
+     */
+    private static String trim(String path) {
+        return path.length() > 1 && path.endsWith("/") ?
+                path.substring(0, path.length() - 1) : path;
+    }
+
+    /**
+     * @param path A path.
+     * @return The end of the path, excluding a trailing slash.
+     */
+    private static int end(String path) {
+        var length = path.length();
+        return length > 1 && path.charAt(length - 1) == '/' ? length - 1 : length;
+    }
+
+    /**
+     * A matched template.
+     *
+     * @param template The path template.
+     * @param parameters The names of the template's parameters, in order.
+     * @param value The value stored for the template.
+     */
+    public record Route<T>(String template, String[] parameters, T value) {
+    }
+
+    /**
+     * A position in the tree.
+     * The static text of a node is matched before its children.
+     */
+    private static final class Node<T> {
+        private String prefix;
+        private char[] indices = new char[0];
+        @SuppressWarnings("unchecked")
+        private Node<T>[] children = new Node[0];
+        private Node<T> parameter;
+        private Route<T> route;
+
+        private Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Inserts static text below this node.
+         *
+         * @param text The text to insert.
+         * @return The node which ends with the text.
+         */
+        private Node<T> insert(String text) {
+            var node = this;
+            while (!text.isEmpty()) {
+                var child = node.child(text.charAt(0));
+                if (child == null) {
+                    child = new Node<>(text);
+                    node.add(child);
+                    return child;
+                }
+
+                // Split the child where the text diverges from it.
+                var common = RouteTree.commonPrefix(child.prefix, text);
+                if (common < child.prefix.length()) {
+                    child.split(common);
+                }
+
+                node = child;
+                text = text.substring(common);
+            }
+            return node;
+        }
+
+        /**
+         * Splits this node, moving everything after its first characters into a new child.
+         *
+         * @param length The amount of characters to keep.
+         */
+        @SuppressWarnings("unchecked")
+        private void split(int length) {
+            var tail = new Node<T>(this.prefix.substring(length));
+            tail.indices = this.indices;
+            tail.children = this.children;
+            tail.parameter = this.parameter;
+            tail.route = this.route;
+
+            this.prefix = this.prefix.substring(0, length);
+            this.indices = new char[] {tail.prefix.charAt(0)};
+            this.children = new Node[] {tail};
+            this.parameter = null;
+            this.route = null;
+        }
+
+        /**
+         * @param first The first character of the child's text.
+         * @return The child, or null if there is none.
+         */
+        private Node<T> child(char first) {
+            var indices = this.indices;
+            for (var i = 0; i < indices.length; i++) {
+                if (indices[i] == first) return this.children[i];
+            }
+            return null;
+        }
+
+        /**
+         * @param child The child to add.
+         */
+        private void add(Node<T> child) {
+            var length = this.indices.length;
+            this.indices = Arrays.copyOf(this.indices, length + 1);
+            this.children = Arrays.copyOf(this.children, length + 1);
+            this.indices[length] = child.prefix.charAt(0);
+            this.children[length] = child;
+        }
+
+        /**
+         * Matches the rest of a path below this node.
+         *
+         * @param path The path.
+         * @param index The offset where the rest of the path starts.
+         * @param end The offset where the path ends.
+         * @param bounds Receives the bounds of each parameter.
+         * @param parameter The index of the next parameter.
+         * @return The matched route, or null if nothing below this node matches.
+         */
+        private Route<T> match(String path, int index, int end, int[] bounds, int parameter) {
+            if (index == end) {
+                return this.route;
+            }
+
+            var child = this.child(path.charAt(index));
+            if (child != null) {
+                var length = child.prefix.length();
+                if (index + length <= end && path.startsWith(child.prefix, index)) {
+                    var route = child.match(path, index + length, end, bounds, parameter);
+                    if (route != null) return route;
+                }
+            }
+
+            // Parameters capture the rest of the segment.
+            if (this.parameter != null) {
+                var slash = path.indexOf('/', index);
+                var stop = slash < 0 || slash > end ? end : slash;
+                if (stop > index) {
+                    bounds[parameter * 2] = index;
+                    bounds[parameter * 2 + 1] = stop;
+                    return this.parameter.match(path, stop, end, bounds, parameter + 1);
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * @param a A string.
+     * @param b Another string.
+     * @return The length of the prefix the strings share.
+     */
+    private static int commonPrefix(String a, String b) {
+        var length = Math.min(a.length(), b.length());
+        for (var i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) return i;
+        }
+        return length;
+    }
+}
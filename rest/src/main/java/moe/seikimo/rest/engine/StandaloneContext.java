@@ -0,0 +1,358 @@
+package moe.seikimo.rest.engine;
+
+import io.javalin.config.Key;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+import io.javalin.json.JsonMapper;
+import io.javalin.plugin.ContextPlugin;
+import io.javalin.security.RouteRole;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The context of a request handled by the standalone engine.
+ * There is no servlet request; everything a route reads is taken from the parsed request.
+ */
+final class StandaloneContext implements Context {
+    private final StandaloneEngine engine;
+    private final RawRequest request;
+    private final HandlerType type;
+    private final RouteTree.Route<?> route;
+    private final int[] bounds;
+    private final StandaloneResponse response = new StandaloneResponse();
+
+    private Map<String, String> pathParams;
+    private InputStream result;
+    private CompletableFuture<?> future;
+
+    /**
+     * @param engine The engine which received the request.
+     * @param request The request.
+     * @param type The method of the request.
+     * @param route The matched route, or null if no route matched.
+     * @param bounds The bounds of the route's parameters.
+     */
+    StandaloneContext(StandaloneEngine engine, RawRequest request,
+                      HandlerType type, RouteTree.Route<?> route, int[] bounds) {
+        this.engine = engine;
+        this.request = request;
+        this.type = type;
+        this.route = route;
+        this.bounds = bounds;
+    }
+
+    /**
+     * @return The parsed request.
+     */
+    RawRequest request() {
+        return this.request;
+    }
+
+    /**
+     * @return The response.
+     */
+    StandaloneResponse response() {
+        return this.response;
+    }
+
+    /**
+     * @return The future registered by the handler, or null if it completed synchronously.
+     */
+    CompletableFuture<?> pending() {
+        return this.future;
+    }
+
+    /// <editor-fold desc="Request">
+
+    @NotNull @Override
+    public HttpServletRequest req() {
+        throw new UnsupportedOperationException("The standalone engine has no servlet request.");
+    }
+
+    @NotNull @Override
+    public HandlerType handlerType() {
+        return this.type;
+    }
+
+    @NotNull @Override
+    public HandlerType method() {
+        return this.type;
+    }
+
+    @NotNull @Override
+    public String path() {
+        return this.request.path();
+    }
+
+    @NotNull @Override
+    public String contextPath() {
+        return "";
+    }
+
+    @NotNull @Override
+    public String matchedPath() {
+        return this.route == null ? this.request.path() : this.route.template();
+    }
+
+    @NotNull @Override
+    public String endpointHandlerPath() {
+        return this.matchedPath();
+    }
+
+    @NotNull @Override
+    public String protocol() {
+        return this.request.protocol();
+    }
+
+    @NotNull @Override
+    public String scheme() {
+        return "http";
+    }
+
+    @NotNull @Override
+    public String host() {
+        var host = this.request.header(Header.HOST);
+        return host == null ? "localhost" : host;
+    }
+
+    @NotNull @Override
+    public String ip() {
+        return this.request.remoteAddress();
+    }
+
+    @NotNull @Override
+    public String url() {
+        return this.scheme() + "://" + this.host() + this.path();
+    }
+
+    @NotNull @Override
+    public String fullUrl() {
+        var query = this.request.query();
+        return query == null ? this.url() : this.url() + "?" + query;
+    }
+
+    @Override
+    public String userAgent() {
+        return this.request.header(Header.USER_AGENT);
+    }
+
+    @Override
+    public String header(@NotNull String header) {
+        return this.request.header(header);
+    }
+
+    @NotNull @Override
+    public Map<String, String> headerMap() {
+        var headers = new LinkedHashMap<String, String>();
+        for (var header : this.request.headers()) {
+            headers.putIfAbsent(header[0], header[1]);
+        }
+        return headers;
+    }
+
+    @Override
+    public String queryString() {
+        return this.request.query();
+    }
+
+    @Override
+    public String contentType() {
+        return this.request.header(Header.CONTENT_TYPE);
+    }
+
+    @Override
+    public int contentLength() {
+        return this.request.body().length;
+    }
+
+    @Override
+    public String characterEncoding() {
+        var type = this.contentType();
+        if (type == null) return null;
+
+        var index = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index < 0) return null;
+
+        var end = type.indexOf(';', index);
+        return type.substring(index + 8, end < 0 ? type.length() : end).trim();
+    }
+
+    @NotNull @Override
+    public InputStream bodyInputStream() {
+        return new ByteArrayInputStream(this.request.body());
+    }
+
+    @NotNull @Override
+    public byte[] bodyAsBytes() {
+        return this.request.body();
+    }
+
+    @NotNull @Override
+    public String pathParam(@NotNull String key) {
+        var value = this.pathParamMap().get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("'%s' is not a valid path-param for '%s'."
+                    .formatted(key, this.matchedPath()));
+        }
+        return value;
+    }
+
+    @NotNull @Override
+    public Map<String, String> pathParamMap() {
+        if (this.pathParams == null) {
+            this.pathParams = this.route == null || this.route.parameters().length == 0 ?
+                    Map.of() : new PathParameters();
+        }
+        return this.pathParams;
+    }
+
+    /// </editor-fold>
+
+    /// <editor-fold desc="Response">
+
+    @NotNull @Override
+    public HttpServletResponse res() {
+        return this.response;
+    }
+
+    @NotNull @Override
+    public ServletOutputStream outputStream() {
+        return this.response.getOutputStream();
+    }
+
+    @NotNull @Override
+    public Context minSizeForCompression(int size) {
+        // The standalone engine doesn't compress responses.
+        return this;
+    }
+
+    @NotNull @Override
+    public Context result(@NotNull InputStream result) {
+        this.result = result;
+        return this;
+    }
+
+    @Override
+    public InputStream resultInputStream() {
+        return this.result;
+    }
+
+    @Override
+    public void future(@NotNull Supplier<? extends CompletableFuture<?>> future) {
+        this.future = future.get();
+    }
+
+    @Override
+    public void redirect(@NotNull String location, @NotNull HttpStatus status) {
+        this.response.setHeader(Header.LOCATION, location);
+        this.response.setStatus(status.getCode());
+    }
+
+    @Override
+    public void writeJsonStream(@NotNull Stream<?> stream) {
+        this.contentType("application/json");
+        this.jsonMapper().writeToOutputStream(stream, this.outputStream());
+    }
+
+    @NotNull @Override
+    public Context skipRemainingHandlers() {
+        return this;
+    }
+
+    /// </editor-fold>
+
+    @Override
+    public <T> T appData(@NotNull Key<T> key) {
+        return this.engine.appData(key);
+    }
+
+    @NotNull @Override
+    public JsonMapper jsonMapper() {
+        return this.engine.jsonMapper();
+    }
+
+    @Override
+    public <T> T with(@NotNull Class<? extends ContextPlugin<?, T>> clazz) {
+        throw new UnsupportedOperationException("The standalone engine doesn't support plugins.");
+    }
+
+    @NotNull @Override
+    public Set<RouteRole> routeRoles() {
+        return Set.of();
+    }
+
+    /**
+     * The parameters of the matched route.
+     * Values are only decoded when they are read.
+     */
+    private final class PathParameters extends AbstractMap<String, String> {
+        private final String[] names = StandaloneContext.this.route.parameters();
+        private final String[] values = new String[this.names.length];
+
+        @Override
+        public String get(Object key) {
+            var names = this.names;
+            for (var i = 0; i < names.length; i++) {
+                if (names[i].equals(key)) return this.value(i);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            for (var name : this.names) {
+                if (name.equals(key)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return this.names.length;
+        }
+
+        @NotNull @Override
+        public Set<Entry<String, String>> entrySet() {
+            var entries = new LinkedHashMap<String, String>();
+            for (var i = 0; i < this.names.length; i++) {
+                entries.put(this.names[i], this.value(i));
+            }
+            return entries.entrySet();
+        }
+
+        /**
+         * @param index The index of the parameter.
+         * @return The value of the parameter.
+         */
+        private String value(int index) {
+            var value = this.values[index];
+            if (value == null) {
+                var bounds = StandaloneContext.this.bounds;
+                value = StandaloneContext.this.request.path()
+                        .substring(bounds[index * 2], bounds[index * 2 + 1]);
+                if (value.indexOf('%') >= 0) {
+                    value = URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+                }
+                this.values[index] = value;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package moe.seikimo.rest.engine;
+
+import io.javalin.config.Key;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import io.javalin.http.Header;
+import io.javalin.http.HttpResponseException;
+import io.javalin.http.HttpStatus;
+import io.javalin.json.JavalinGson;
+import io.javalin.json.JsonMapper;
+import io.javalin.util.ConcurrencyUtil;
+import io.javalin.websocket.WsConfig;
+import lombok.extern.slf4j.Slf4j;
+import moe.seikimo.rest.RestApplication;
+import moe.seikimo.rest.RestConfiguration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A minimal HTTP/1.1 server, which routes with a {@link RouteTree} instead of Javalin.
+ * One selector thread accepts connections and parses requests; handlers run on a pool of workers.
+ * Responses are buffered and written with their length; responses which stream, such as
+ * {@link moe.seikimo.rest.EventStream}s, never complete, so they are answered with a 501 instead.
+ * <p>
+ * This trades Javalin's features (WebSockets, compression, plugins, servlet APIs) for less work per request.
+ */
+@Slf4j
+public final class StandaloneEngine implements HttpEngine {
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    private static final byte[] NOT_FOUND = "Not Found".getBytes(StandardCharsets.UTF_8);
+    private static final int[] NO_BOUNDS = new int[0];
+
+    private final RestConfiguration config;
+    private final JsonMapper jsonMapper;
+    private final Map<Key<?>, Object> appData;
+    private final Map<HandlerType, RouteTree<Handler>> routes = new EnumMap<>(HandlerType.class);
+    private Handler notFound;
+    private int maxParameters;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<HttpConnection> connections = new HashSet<>();
+    private Selector selector;
+    private ServerSocketChannel server;
+    private ExecutorService workers;
+    private Thread loop;
+    private int port;
+    private volatile boolean running, accepting;
+
+    private volatile CachedDate date = new CachedDate(0, "");
+
+    /**
+     * @param config The configuration of the application.
+     */
+    public StandaloneEngine(RestConfiguration config) {
+        this.config = config;
+        this.jsonMapper = new JavalinGson(config.getGson(), config.isVirtualThreads());
+        this.appData = Map.of(RestApplication.CONFIG, config);
+    }
+
+    @Override
+    public void add(HandlerType type, String path, Handler handler) {
+        var tree = this.routes.computeIfAbsent(type, key -> new RouteTree<>());
+        tree.add(path, handler);
+        this.maxParameters = Math.max(this.maxParameters, tree.maxParameters());
+    }
+
+    @Override
+    public void notFound(Handler handler) {
+        this.notFound = handler;
+    }
+
+    @Override
+    public void socket(String path, Consumer<WsConfig> config) {
+        throw new UnsupportedOperationException("WebSockets are not supported by the standalone engine.");
+    }
+
+    @Override
+    public void start(int port) {
+        try {
+            this.selector = Selector.open();
+            this.server = ServerSocketChannel.open();
+            this.server.bind(new InetSocketAddress(port), 1024);
+            this.server.configureBlocking(false);
+            this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+            this.port = ((InetSocketAddress) this.server.getLocalAddress()).getPort();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to bind on port " + port, ex);
+        }
+
+        this.workers = this.config.isVirtualThreads() && ConcurrencyUtil.isLoomAvailable() ?
+                ConcurrencyUtil.executorService("magix-rest-worker", true) :
+                Executors.newFixedThreadPool(this.config.getEngineThreads(), runnable -> {
+                    var thread = new Thread(runnable, "magix-rest-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.running = this.accepting = true;
+        this.loop = new Thread(this::run, "magix-rest-selector");
+        this.loop.start();
+        log.info("Listening on port {} with the standalone engine.", this.port);
+    }
+
+    @Override
+    public int port() {
+        return this.port;
+    }
+
+    @Override
+    public void close() {
+        this.accepting = false;
+        try {
+            this.server.close();
+        } catch (IOException ex) {
+            log.debug("Unable to close the server socket.", ex);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!this.running) return;
+
+        this.close();
+        this.running = false;
+        this.selector.wakeup();
+        try {
+            this.loop.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * @param key The key of the data.
+     * @return The application data stored under the key.
+     * @throws IllegalStateException If there is no data for the key.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T appData(Key<T> key) {
+        var value = this.appData.get(key);
+        if (value == null) {
+            throw new IllegalStateException("No application data for key: " + key.getId());
+        }
+        return (T) value;
+    }
+
+    /**
+     * @return The JSON mapper of the application.
+     */
+    JsonMapper jsonMapper() {
+        return this.jsonMapper;
+    }
+
+    /// <editor-fold desc="Selector">
+
+    /**
+     * Runs the selector until the engine is stopped.
+     */
+    private void run() {
+        var swept = System.currentTimeMillis();
+        while (this.running) {
+            try {
+                this.selector.select(1000);
+            } catch (IOException ex) {
+                log.warn("The selector failed; stopping the standalone engine.", ex);
+                break;
+            }
+
+            Runnable task;
+            while ((task = this.tasks.poll()) != null) try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.warn("Unexpected error in a selector task.", ex);
+            }
+
+            var keys = this.selector.selectedKeys();
+            for (var key : keys) {
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    this.accept();
+                    continue;
+                }
+
+                // One bad connection must not stop the selector.
+                var connection = (HttpConnection) key.attachment();
+                try {
+                    connection.ready();
+                } catch (RuntimeException ex) {
+                    log.warn("Unexpected error on a connection; closing it.", ex);
+                    connection.close();
+                }
+            }
+            keys.clear();
+
+            // Close connections which have been idle for too long.
+            var now = System.currentTimeMillis();
+            if (now - swept >= 1000) {
+                swept = now;
+                for (var connection : new ArrayList<>(this.connections)) {
+                    if (connection.idle(now, IDLE_TIMEOUT)) connection.close();
+                }
+            }
+        }
+
+        for (var connection : new ArrayList<>(this.connections)) {
+            connection.close();
+        }
+        try {
+            this.selector.close();
+        } catch (IOException ex) {
+            log.debug("Unable to close the selector.", ex);
+        }
+    }
+
+    /**
+     * Accepts pending connections.
+     */
+    private void accept() {
+        try {
+            var channel = this.server.accept();
+            while (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                var maxBody = this.config.getMaxBodySize();
+                var connection = new HttpConnection(this, channel,
+                        maxBody <= 0 ? Integer.MAX_VALUE - 8 : maxBody);
+                connection.key(channel.register(this.selector, SelectionKey.OP_READ, connection));
+                this.connections.add(connection);
+
+                channel = this.server.accept();
+            }
+        } catch (IOException ex) {
+            log.debug("Unable to accept a connection.", ex);
+        }
+    }
+
+    /**
+     * Runs a task on the selector thread.
+     *
+     * @param task The task.
+     */
+    void execute(Runnable task) {
+        this.tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Forgets a closed connection.
+     * This is called on the selector thread.
+     *
+     * @param connection The connection.
+     */
+    void closed(HttpConnection connection) {
+        this.connections.remove(connection);
+    }
+
+    /// </editor-fold>
+
+    /// <editor-fold desc="Handling">
+
+    /**
+     * Handles a request on a worker.
+     *
+     * @param connection The connection which received the request.
+     * @param request The request.
+     */
+    void dispatch(HttpConnection connection, RawRequest request) {
+        try {
+            this.workers.execute(() -> this.handle(connection, request));
+        } catch (RejectedExecutionException ex) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Routes a request and invokes its handler.
+     *
+     * @param connection The connection which received the request.
+     * @param request The request.
+     */
+    private void handle(HttpConnection connection, RawRequest request) {
+        var type = HandlerType.Companion.findByName(request.method());
+        if (type == HandlerType.INVALID || !type.isHttpMethod()) {
+            var context = new StandaloneContext(this, request, HandlerType.INVALID, null, NO_BOUNDS);
+            context.status(HttpStatus.NOT_IMPLEMENTED).result("Not Implemented");
+            this.respond(connection, context, false);
+            return;
+        }
+
+        // HEAD requests are answered by GET routes, without the body.
+        var head = type == HandlerType.HEAD;
+        var tree = this.routes.get(head ? HandlerType.GET : type);
+        var bounds = this.maxParameters == 0 ? NO_BOUNDS : new int[this.maxParameters * 2];
+        var route = tree == null ? null : tree.match(request.path(), bounds);
+
+        var context = new StandaloneContext(this, request, type, route, bounds);
+        try {
+            if (route != null) {
+                route.value().handle(context);
+            } else {
+                context.status(HttpStatus.NOT_FOUND);
+                if (this.notFound != null) {
+                    this.notFound.handle(context);
+                } else {
+                    context.result(NOT_FOUND);
+                }
+            }
+        } catch (Exception ex) {
+            StandaloneEngine.error(context, ex);
+        }
+
+        var pending = context.pending();
+        if (pending == null) {
+            this.respond(connection, context, head);
+        } else {
+            pending.whenComplete((result, ex) -> {
+                if (ex != null) StandaloneEngine.error(context, ex);
+                this.respond(connection, context, head);
+            });
+        }
+    }
+
+    /**
+     * Answers an exception which wasn't handled by the route.
+     *
+     * @param context The context of the request.
+     * @param exception The exception.
+     */
+    private static void error(StandaloneContext context, Throwable exception) {
+        context.res().reset();
+        context.result(new byte[0]);
+        if (exception instanceof HttpResponseException response) {
+            context.status(response.getStatus()).result(response.getMessage());
+        } else {
+            log.warn("Exception encountered while handling a request.", exception);
+            context.status(HttpStatus.INTERNAL_SERVER_ERROR).result("Internal Server Error");
+        }
+    }
+
+    /**
+     * Encodes and sends the response of a request.
+     *
+     * @param connection The connection which received the request.
+     * @param context The context of the request.
+     * @param head Whether to omit the body.
+     */
+    private void respond(HttpConnection connection, StandaloneContext context, boolean head) {
+        var response = context.response();
+        ByteBuffer body, result;
+        try {
+            body = response.body();
+            var stream = context.resultInputStream();
+            result = ByteBuffer.wrap(stream == null ? new byte[0] : stream.readAllBytes());
+        } catch (IOException ex) {
+            log.warn("Unable to read the result of a request.", ex);
+            response.reset();
+            response.setStatus(500);
+            body = ByteBuffer.wrap(new byte[0]);
+            result = ByteBuffer.wrap("Internal Server Error".getBytes(StandardCharsets.UTF_8));
+        }
+
+        var status = response.getStatus();
+        var length = body.remaining() + result.remaining();
+        var keepAlive = this.accepting && context.request().keepAlive() &&
+                !"close".equalsIgnoreCase(response.getHeader(Header.CONNECTION));
+
+        var builder = new StringBuilder(256)
+                .append("HTTP/1.1 ").append(status).append(' ')
+                .append(HttpStatus.forStatus(status).getMessage()).append("\r\n")
+                .append("Date: ").append(this.date()).append("\r\n");
+
+        var contentType = response.getContentType();
+        if (contentType == null && length > 0) contentType = "text/plain";
+        if (contentType != null) {
+            builder.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+
+        for (var header : response.headers()) {
+            if (header[0].equalsIgnoreCase(Header.CONNECTION)) continue;
+            builder.append(header[0]).append(": ").append(header[1]).append("\r\n");
+        }
+
+        // Informational, 204 and 304 responses have no body.
+        var bodyless = status < 200 || status == 204 || status == 304;
+        if (!bodyless) {
+            builder.append("Content-Length: ").append(length).append("\r\n");
+        }
+        if (!keepAlive) {
+            builder.append("Connection: close\r\n");
+        }
+        builder.append("\r\n");
+
+        var encoded = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.ISO_8859_1));
+        connection.send(head || bodyless ?
+                new ByteBuffer[] {encoded} :
+                new ByteBuffer[] {encoded, body, result}, keepAlive);
+    }
+
+    /**
+     * @return The current time, formatted for the Date header.
+     */
+    private String date() {
+        var second = System.currentTimeMillis() / 1000;
+        var date = this.date;
+        if (date.second() != second) {
+            date = this.date = new CachedDate(second, StandaloneResponse.formatDate(second * 1000));
+        }
+        return date.value();
+    }
+
+    /// </editor-fold>
+
+    /**
+     * The Date header for a second.
+     *
+     * @param second The second, since the epoch.
+     * @param value The formatted date.
+     */
+    private record CachedDate(long second, String value) {
+    }
+}
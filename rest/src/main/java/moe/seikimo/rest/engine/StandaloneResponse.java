@@ -0,0 +1,383 @@
+package moe.seikimo.rest.engine;
+
+import io.javalin.http.Header;
+import io.javalin.http.HttpResponseException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The response of a request handled by the standalone engine.
+ * The whole response is buffered, and written once the handler completes.
+ * Responses which flush early, such as {@link moe.seikimo.rest.EventStream}s, are answered with a 501.
+ */
+final class StandaloneResponse implements HttpServletResponse {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    private final List<String[]> headers = new ArrayList<>();
+    private final Output output = new Output();
+
+    private int status = 200;
+    private String contentType;
+    private String characterEncoding;
+    private PrintWriter writer;
+
+    /**
+     * @return The headers of the response, as name and value pairs.
+     */
+    List<String[]> headers() {
+        return this.headers;
+    }
+
+    /**
+     * @return The bytes written to the output stream, without copying them.
+     */
+    ByteBuffer body() {
+        if (this.writer != null) this.writer.flush();
+        return this.output.buffer.wrap();
+    }
+
+    @Override
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int status, String message) {
+        this.status = status;
+    }
+
+    @Override
+    public int getStatus() {
+        return this.status;
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type != null) StandaloneResponse.validate(Header.CONTENT_TYPE, type);
+        this.contentType = type;
+
+        // A charset in the content type sets the encoding.
+        var index = type == null ? -1 : type.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index >= 0) {
+            this.characterEncoding = type.substring(index + 8).trim();
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        if (this.contentType == null || this.characterEncoding == null ||
+                this.contentType.contains("charset=")) {
+            return this.contentType;
+        }
+        return this.contentType + ";charset=" + this.characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        this.characterEncoding = charset;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return this.characterEncoding == null ?
+                StandardCharsets.ISO_8859_1.name() : this.characterEncoding;
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return this.getHeader(name) != null;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (Header.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            return this.getContentType();
+        }
+
+        for (var header : this.headers) {
+            if (header[0].equalsIgnoreCase(name)) return header[1];
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        var values = new ArrayList<String>();
+        for (var header : this.headers) {
+            if (header[0].equalsIgnoreCase(name)) values.add(header[1]);
+        }
+        return values;
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        var names = new LinkedHashSet<String>();
+        for (var header : this.headers) {
+            names.add(header[0]);
+        }
+        return names;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (Header.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            this.setContentType(value);
+            return;
+        }
+
+        StandaloneResponse.validate(name, "");
+        this.headers.removeIf(header -> header[0].equalsIgnoreCase(name));
+        if (value != null) this.addHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (Header.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            this.setContentType(value);
+            return;
+        }
+
+        StandaloneResponse.validate(name, value);
+        this.headers.add(new String[] {name, value});
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        this.setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        this.addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        this.setHeader(name, StandaloneResponse.formatDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        this.addHeader(name, StandaloneResponse.formatDate(date));
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        var builder = new StringBuilder(cookie.getName()).append('=').append(cookie.getValue());
+        if (cookie.getPath() != null) builder.append("; Path=").append(cookie.getPath());
+        if (cookie.getDomain() != null) builder.append("; Domain=").append(cookie.getDomain());
+        if (cookie.getMaxAge() >= 0) builder.append("; Max-Age=").append(cookie.getMaxAge());
+        if (cookie.getSecure()) builder.append("; Secure");
+        if (cookie.isHttpOnly()) builder.append("; HttpOnly");
+        this.addHeader(Header.SET_COOKIE, builder.toString());
+    }
+
+    @Override
+    public void sendError(int status, String message) {
+        this.resetBuffer();
+        this.status = status;
+        if (message != null) {
+            this.output.buffer.writeBytes(message.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void sendError(int status) {
+        this.sendError(status, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        this.resetBuffer();
+        this.status = 302;
+        this.setHeader(Header.LOCATION, location);
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return this.output;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (this.writer == null) {
+            var charset = this.characterEncoding == null ?
+                    StandardCharsets.UTF_8 : Charset.forName(this.characterEncoding);
+            this.writer = new PrintWriter(new OutputStreamWriter(this.output, charset));
+        }
+        return this.writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        // The length is always computed from the buffered body.
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        // The length is always computed from the buffered body.
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return this.output.buffer.size();
+    }
+
+    /**
+     * The response is written once the handler completes, so it can't be sent early.
+     * Flushing is how streamed responses start, so they are rejected rather than buffered without end.
+     *
+     * @throws HttpResponseException Always, with a 501.
+     */
+    @Override
+    public void flushBuffer() {
+        throw new HttpResponseException(501, "Streamed responses are not supported by this server.");
+    }
+
+    @Override
+    public void resetBuffer() {
+        this.output.buffer.reset();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        this.resetBuffer();
+        this.headers.clear();
+        this.status = 200;
+        this.contentType = null;
+        this.characterEncoding = null;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+    }
+
+    @Override
+    public Locale getLocale() {
+        return Locale.getDefault();
+    }
+
+    /**
+     * Rejects headers which could change the framing of the response, as Jetty does.
+     * Names must be tokens, and values can't contain control characters other than tabs.
+     *
+     * @param name The name of the header.
+     * @param value The value of the header.
+     * @throws IllegalArgumentException If the header is invalid.
+     */
+    static void validate(String name, String value) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Header names can't be empty.");
+        }
+        for (var i = 0; i < name.length(); i++) {
+            var c = name.charAt(i);
+            if (c <= ' ' || c >= 0x7f || "\"(),/:;<=>?@[\\]{}".indexOf(c) >= 0) {
+                throw new IllegalArgumentException("Invalid character in header name: " + name);
+            }
+        }
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if ((c < ' ' && c != '\t') || c == 0x7f) {
+                throw new IllegalArgumentException("Invalid character in the value of header: " + name);
+            }
+        }
+    }
+
+    /**
+     * @param date The time, in milliseconds since the epoch.
+     * @return The time, formatted for an HTTP header.
+     */
+    static String formatDate(long date) {
+        return DATE_FORMAT.format(Instant.ofEpochMilli(date));
+    }
+
+    /**
+     * Buffers the body of the response.
+     */
+    private static final class Output extends ServletOutputStream {
+        private final Buffer buffer = new Buffer();
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            throw new UnsupportedOperationException("The standalone engine doesn't support asynchronous writes.");
+        }
+
+        @Override
+        public void write(int b) {
+            this.buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.buffer.write(b, off, len);
+        }
+    }
+
+    /**
+     * A byte array stream which exposes its array.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        /**
+         * @return The written bytes, sharing the array of this stream.
+         */
+        private ByteBuffer wrap() {
+            return ByteBuffer.wrap(this.buf, 0, this.count);
+        }
+    }
+}
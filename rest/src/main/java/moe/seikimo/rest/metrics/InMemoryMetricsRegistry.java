@@ -0,0 +1,153 @@
+package moe.seikimo.rest.metrics;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps route metrics in memory.
+ */
+public final class InMemoryMetricsRegistry implements MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ConcurrentHashMap<String, Statistics> routes = new ConcurrentHashMap<>();
+
+    @Override
+    public RouteMetrics route(String method, String route) {
+        return this.routes.computeIfAbsent(method + " " + route,
+                key -> new Statistics(method, route));
+    }
+
+    /**
+     * @return The metrics of every registered route.
+     */
+    public Collection<Statistics> routes() {
+        return this.routes.values();
+    }
+
+    @Override
+    public String scrape() {
+        var builder = new StringBuilder();
+
+        builder.append("# TYPE magix_http_request_duration_seconds summary\n");
+        for (var route : this.routes.values()) {
+            var labels = route.labels();
+            for (var quantile : QUANTILES) {
+                builder.append("magix_http_request_duration_seconds{")
+                        .append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(InMemoryMetricsRegistry.seconds(route.latency.quantile(quantile)))
+                        .append('\n');
+            }
+            builder.append("magix_http_request_duration_seconds_sum{").append(labels).append("} ")
+                    .append(InMemoryMetricsRegistry.seconds(route.latency.sum())).append('\n');
+            builder.append("magix_http_request_duration_seconds_count{").append(labels).append("} ")
+                    .append(route.latency.count()).append('\n');
+        }
+
+        builder.append("# TYPE magix_http_requests_in_flight gauge\n");
+        for (var route : this.routes.values()) {
+            builder.append("magix_http_requests_in_flight{").append(route.labels()).append("} ")
+                    .append(route.inFlight.sum()).append('\n');
+        }
+
+        builder.append("# TYPE magix_http_responses_total counter\n");
+        for (var route : this.routes.values()) {
+            for (var status = 0; status < route.statuses.length(); status++) {
+                var count = route.statuses.get(status);
+                if (count == 0) continue;
+
+                builder.append("magix_http_responses_total{").append(route.labels())
+                        .append(",status=\"").append(status).append("\"} ")
+                        .append(count).append('\n');
+            }
+        }
+
+        builder.append("# TYPE magix_http_errors_total counter\n");
+        for (var route : this.routes.values()) {
+            builder.append("magix_http_errors_total{").append(route.labels()).append("} ")
+                    .append(route.errors.sum()).append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @param nanos A duration in nanoseconds.
+     * @return The duration in seconds.
+     */
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    public static final class Statistics implements RouteMetrics {
+        private final String method, route;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLongArray statuses = new AtomicLongArray(600);
+
+        private Statistics(String method, String route) {
+            this.method = method;
+            this.route = route;
+        }
+
+        @Override
+        public void started() {
+            this.inFlight.increment();
+        }
+
+        @Override
+        public void completed(long duration, int status) {
+            this.inFlight.decrement();
+            this.latency.record(duration);
+            if (status >= 0 && status < this.statuses.length()) {
+                this.statuses.incrementAndGet(status);
+            }
+        }
+
+        @Override
+        public void failed() {
+            this.errors.increment();
+        }
+
+        /**
+         * @return The latency histogram, in nanoseconds.
+         */
+        public LatencyHistogram latency() {
+            return this.latency;
+        }
+
+        /**
+         * @return The amount of requests currently being handled.
+         */
+        public long inFlight() {
+            return this.inFlight.sum();
+        }
+
+        /**
+         * @return The amount of requests where the handler threw an exception.
+         */
+        public long errors() {
+            return this.errors.sum();
+        }
+
+        /**
+         * @param status The status code.
+         * @return The amount of responses sent with the status code.
+         */
+        public long responses(int status) {
+            return this.statuses.get(status);
+        }
+
+        /**
+         * @return The Prometheus labels of the route.
+         */
+        private String labels() {
+            return "method=\"" + this.method + "\",route=\"" +
+                    this.route.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+    }
+}
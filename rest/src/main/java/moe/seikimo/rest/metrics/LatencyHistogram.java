@@ -0,0 +1,99 @@
+package moe.seikimo.rest.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram with logarithmic buckets.
+ * Each power of two is split into linear sub-buckets, keeping the relative error below 12.5%.
+ * Recording a value does not allocate.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records a value.
+     *
+     * @param value The value; negative values are recorded as zero.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        this.counts.incrementAndGet(LatencyHistogram.index(value));
+        this.count.increment();
+        this.sum.add(value);
+    }
+
+    /**
+     * @return The amount of recorded values.
+     */
+    public long count() {
+        return this.count.sum();
+    }
+
+    /**
+     * @return The sum of all recorded values.
+     */
+    public long sum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * Estimates the value at a quantile.
+     *
+     * @param quantile The quantile, between 0 and 1.
+     * @return The estimated value, or 0 if nothing was recorded.
+     */
+    public long quantile(double quantile) {
+        var total = 0L;
+        var snapshot = new long[BUCKETS];
+        for (var i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        var rank = (long) Math.ceil(quantile * total);
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank)) {
+                return LatencyHistogram.upperBound(i);
+            }
+        }
+
+        return LatencyHistogram.upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * @param value The value.
+     * @return The bucket which the value is counted in.
+     */
+    static int index(long value) {
+        if (value < SUB_COUNT) return (int) value;
+
+        var exponent = 63 - Long.numberOfLeadingZeros(value);
+        var shift = exponent - SUB_BITS;
+        var sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+        return (shift + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @param index The bucket.
+     * @return The highest value counted in the bucket.
+     */
+    static long upperBound(int index) {
+        var bucket = index >> SUB_BITS;
+        var sub = index & (SUB_COUNT - 1);
+        if (bucket == 0) return sub;
+
+        var shift = bucket - 1;
+        return ((long) (SUB_COUNT + sub + 1) << shift) - 1;
+    }
+}
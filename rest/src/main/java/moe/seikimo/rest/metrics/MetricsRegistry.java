@@ -0,0 +1,24 @@
+package moe.seikimo.rest.metrics;
+
+/**
+ * Collects metrics for the routes of an application.
+ * Implement this to forward metrics to an external system.
+ */
+public interface MetricsRegistry {
+    /**
+     * Creates or returns the metrics of a route.
+     * This is called once per route, when it is registered.
+     *
+     * @param method The HTTP method of the route.
+     * @param route The path of the route.
+     * @return The route's metrics.
+     */
+    RouteMetrics route(String method, String route);
+
+    /**
+     * Renders the collected metrics in the Prometheus text format.
+     *
+     * @return The rendered metrics.
+     */
+    String scrape();
+}
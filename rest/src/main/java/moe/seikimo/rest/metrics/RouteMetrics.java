@@ -0,0 +1,25 @@
+package moe.seikimo.rest.metrics;
+
+/**
+ * Records the requests handled by a single route.
+ * Implementations are called from every request thread and should not block.
+ */
+public interface RouteMetrics {
+    /**
+     * Called when a request starts being handled.
+     */
+    void started();
+
+    /**
+     * Called when a request has been handled.
+     *
+     * @param duration The time taken to handle the request, in nanoseconds.
+     * @param status The status code of the response.
+     */
+    void completed(long duration, int status);
+
+    /**
+     * Called when the handler threw an exception.
+     */
+    void failed();
+}
@@ -0,0 +1,97 @@
+package moe.seikimo.rest.processor;
+
+import moe.seikimo.rest.RouteIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor which writes the route index.
+ * The index lists every class which declares a route, exception handler, or warm-up method.
+ */
+@SupportedAnnotationTypes({
+        "moe.seikimo.rest.annotations.Route",
+        "moe.seikimo.rest.annotations.NotFound",
+        "moe.seikimo.rest.annotations.ExceptionHandler",
+        "moe.seikimo.rest.annotations.WebSocket",
+        "moe.seikimo.rest.annotations.WarmUp",
+        "moe.seikimo.rest.annotations.methods.*",
+        "moe.seikimo.rest.annotations.methods.repeat.*"
+})
+public final class RouteProcessor extends AbstractProcessor {
+    private final Set<String> classes = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        if (round.processingOver()) {
+            if (!this.classes.isEmpty()) this.write();
+            return false;
+        }
+
+        var elements = this.processingEnv.getElementUtils();
+        for (var annotation : annotations) {
+            for (var element : round.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.METHOD) continue;
+
+                var type = (TypeElement) element.getEnclosingElement();
+                this.classes.add(elements.getBinaryName(type).toString());
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the collected classes to the index.
+     * Entries from a previous (incremental) compilation are kept.
+     */
+    private void write() {
+        var filer = this.processingEnv.getFiler();
+
+        // Merge with the existing index.
+        try {
+            var existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", RouteIndex.LOCATION);
+            try (var reader = new BufferedReader(new InputStreamReader(
+                    existing.openInputStream(), StandardCharsets.UTF_8))) {
+                reader.lines()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty())
+                        .forEach(this.classes::add);
+            }
+        } catch (IOException ignored) {
+            // There is no existing index.
+        }
+
+        try {
+            var resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", RouteIndex.LOCATION);
+            try (var writer = new OutputStreamWriter(
+                    resource.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (var clazz : this.classes) {
+                    writer.write(clazz);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException ex) {
+            this.processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR, "Failed to write route index: " + ex.getMessage());
+        }
+    }
+}
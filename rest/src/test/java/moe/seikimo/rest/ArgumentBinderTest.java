@@ -0,0 +1,65 @@
+package moe.seikimo.rest;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.GsonBuilder;
+import io.javalin.http.BadRequestResponse;
+import moe.seikimo.rest.annotations.params.Param;
+import moe.seikimo.rest.annotations.params.Query;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public final class ArgumentBinderTest {
+    private final ArgumentBinder binder;
+
+    public ArgumentBinderTest() throws NoSuchMethodException {
+        var gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+        this.binder = ArgumentBinder.compile(ArgumentBinderTest.class.getDeclaredMethod(
+                "route", int.class, Filter.class), gson);
+    }
+
+    @SuppressWarnings("unused")
+    private static void route(@Param("id") int id, @Query(value = "filter", required = false) Filter filter) {}
+
+    private static final class Filter {
+        private String sortOrder;
+    }
+
+    private Object[] bind(Map<String, String> path, Map<String, String> query) {
+        var context = new StubContext()
+                .pathParams(path)
+                .on("queryParam", args -> query.get((String) args[0]))
+                .build();
+        return this.binder.bind(new Request(context));
+    }
+
+    /**
+     * This test ensures that values are converted, and JSON is decoded with the configured Gson instance.
+     */
+    @Test
+    public void bindValues() {
+        var values = this.bind(Map.of("id", "42"), Map.of("filter", "{\"sort_order\":\"asc\"}"));
+        Assert.assertEquals(42, values[0]);
+        Assert.assertEquals("asc", ((Filter) values[1]).sortOrder);
+
+        Assert.assertNull(this.bind(Map.of("id", "42"), Map.of())[1]);
+    }
+
+    /**
+     * This test ensures that missing and malformed values are answered with a 400.
+     */
+    @Test
+    public void rejectInvalidValues() {
+        var missing = Assert.assertThrows(BadRequestResponse.class, () -> this.bind(Map.of(), Map.of()));
+        Assert.assertEquals("Parameter id does not exist.", missing.getMessage());
+
+        var malformed = Assert.assertThrows(BadRequestResponse.class, () -> this.bind(Map.of("id", "4x"), Map.of()));
+        Assert.assertEquals("Parameter id is invalid.", malformed.getMessage());
+
+        Assert.assertThrows(BadRequestResponse.class,
+                () -> this.bind(Map.of("id", "1"), Map.of("filter", "{\"sort_order\":")));
+    }
+}
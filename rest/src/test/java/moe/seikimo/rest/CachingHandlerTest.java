@@ -0,0 +1,127 @@
+package moe.seikimo.rest;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import moe.seikimo.rest.annotations.Cached;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CachingHandlerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AtomicInteger calls = new AtomicInteger();
+    private Javalin javalin;
+
+    @Cached(ttl = 100, maxEntries = 2, headers = "Accept-Language", query = "v")
+    private static void route() {}
+
+    @Before
+    public void start() throws NoSuchMethodException {
+        var cached = CachingHandlerTest.class.getDeclaredMethod("route").getAnnotation(Cached.class);
+        this.javalin = Javalin.create(config -> config.http.disableCompression());
+        this.javalin.get("/value", new CachingHandler(this::handle, cached));
+        this.javalin.start(0);
+    }
+
+    @After
+    public void stop() {
+        this.javalin.stop();
+    }
+
+    private void handle(Context ctx) {
+        this.calls.incrementAndGet();
+        ctx.header("X-Custom", "custom");
+        ctx.header("ETag", "\"handler\"");
+        ctx.result("value-" + ctx.queryParam("v"));
+    }
+
+    private HttpResponse<String> get(String query, String... headers) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:%d/value?%s"
+                .formatted(this.javalin.port(), query)));
+        if (headers.length > 0) request.headers(headers);
+        return this.client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * This test ensures that cached responses are replayed with their headers,
+     * and that clients which have the response receive a 304.
+     */
+    @Test
+    public void etagAndNotModified() throws Exception {
+        var first = this.get("v=1");
+        Assert.assertEquals(200, first.statusCode());
+        Assert.assertEquals("value-1", first.body());
+        Assert.assertEquals("Accept-Language", first.headers().firstValue("Vary").orElse(null));
+        var etag = first.headers().firstValue("ETag").orElseThrow();
+
+        var replayed = this.get("v=1");
+        Assert.assertEquals("value-1", replayed.body());
+        Assert.assertEquals("custom", replayed.headers().firstValue("X-Custom").orElse(null));
+        Assert.assertEquals(List.of(etag), replayed.headers().allValues("ETag"));
+        Assert.assertEquals(1, this.calls.get());
+
+        // Lists, weak tags and wildcards match.
+        Assert.assertEquals(304, this.get("v=1", "If-None-Match", "\"other\", W/" + etag).statusCode());
+        Assert.assertEquals(304, this.get("v=1", "If-None-Match", "*").statusCode());
+        Assert.assertEquals(200, this.get("v=1", "If-None-Match", "\"other\"").statusCode());
+        Assert.assertEquals(1, this.calls.get());
+
+        // A miss which computes the same response is answered with a 304 too.
+        var miss = this.get("v=1", "Accept-Language", "fr", "If-None-Match", etag);
+        Assert.assertEquals(304, miss.statusCode());
+        Assert.assertEquals("", miss.body());
+        Assert.assertEquals(2, this.calls.get());
+    }
+
+    /**
+     * This test ensures that missing values are cached separately from any value.
+     */
+    @Test
+    public void separateMissingValues() throws Exception {
+        this.get("");
+        this.get("v=null");
+        Assert.assertEquals(2, this.calls.get());
+
+        this.get("");
+        Assert.assertEquals(2, this.calls.get());
+    }
+
+    /**
+     * This test ensures that responses expire after their TTL.
+     */
+    @Test
+    public void expireEntries() throws Exception {
+        this.get("v=1");
+        this.get("v=1");
+        Assert.assertEquals(1, this.calls.get());
+
+        Thread.sleep(150);
+        Assert.assertEquals("value-1", this.get("v=1").body());
+        Assert.assertEquals(2, this.calls.get());
+    }
+
+    /**
+     * This test ensures that the least recently used response is evicted when the cache is full.
+     */
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        this.get("v=a");
+        this.get("v=b");
+        this.get("v=a"); // 'b' is now the least recently used.
+        this.get("v=c");
+        Assert.assertEquals(3, this.calls.get());
+
+        this.get("v=a");
+        Assert.assertEquals(3, this.calls.get());
+        this.get("v=b");
+        Assert.assertEquals(4, this.calls.get());
+    }
+}
@@ -0,0 +1,114 @@
+package moe.seikimo.rest;
+
+import io.javalin.Javalin;
+import moe.seikimo.rest.annotations.Coalesced;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CoalescingHandlerTest {
+    private static final int REQUESTS = 5;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final CompletableFuture<String> gate = new CompletableFuture<>();
+    private Javalin javalin;
+
+    @Coalesced
+    public CompletableFuture<String> shared(Request request) {
+        this.calls.incrementAndGet();
+        request.handle().header("X-Custom", "custom");
+        return this.gate;
+    }
+
+    @Coalesced
+    public CompletableFuture<Void> direct(Request request) {
+        this.calls.incrementAndGet();
+        this.peak.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+
+        // Responses written to the output stream can't be copied.
+        try {
+            var output = request.handle().res().getOutputStream();
+            output.write("direct".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return CompletableFuture.runAsync(() -> this.active.decrementAndGet(),
+                CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Before
+    public void start() throws NoSuchMethodException {
+        this.javalin = Javalin.create(config -> config.http.disableCompression());
+        for (var name : new String[] {"shared", "direct"}) {
+            var method = CoalescingHandlerTest.class.getMethod(name, Request.class);
+            this.javalin.get("/" + name, new CoalescingHandler(
+                    new RequestHandler(this, method), method.getAnnotation(Coalesced.class)));
+        }
+        this.javalin.start(0);
+    }
+
+    @After
+    public void stop() {
+        this.javalin.stop();
+    }
+
+    private ArrayList<CompletableFuture<HttpResponse<String>>> send(String path) {
+        var responses = new ArrayList<CompletableFuture<HttpResponse<String>>>();
+        for (var i = 0; i < REQUESTS; i++) {
+            responses.add(this.client.sendAsync(HttpRequest.newBuilder(URI.create(
+                            "http://localhost:%d/%s".formatted(this.javalin.port(), path))).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        return responses;
+    }
+
+    /**
+     * This test ensures that concurrent requests share one invocation, including its headers.
+     */
+    @Test
+    public void shareResponse() throws Exception {
+        var responses = this.send("shared");
+
+        // Give every request time to join the invocation.
+        Thread.sleep(300);
+        this.gate.complete("shared");
+
+        for (var response : responses) {
+            var received = response.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals("shared", received.body());
+            Assert.assertEquals("custom", received.headers().firstValue("X-Custom").orElse(null));
+        }
+        Assert.assertEquals(1, this.calls.get());
+    }
+
+    /**
+     * This test ensures that requests waiting for an uncopyable response invoke the handler one at a time.
+     */
+    @Test
+    public void serializeFallback() throws Exception {
+        for (var response : this.send("direct")) {
+            Assert.assertEquals("direct", response.get(5, TimeUnit.SECONDS).body());
+        }
+
+        Assert.assertEquals(1, this.peak.get());
+        Assert.assertTrue(this.calls.get() > 1);
+    }
+}
@@ -0,0 +1,33 @@
+package moe.seikimo.rest;
+
+import io.javalin.compression.GzipCompressor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public final class CompressionCacheTest {
+    private final CompressionCache cache = new CompressionCache(
+            List.of(new GzipCompressor(6)), 2);
+
+    @Test
+    public void negotiate() {
+        Assert.assertNotNull(this.cache.negotiate("br, gzip;q=0.8"));
+        Assert.assertNull(this.cache.negotiate("gzip;q=0"));
+        Assert.assertNull(this.cache.negotiate("identity"));
+        Assert.assertNull(this.cache.negotiate(null));
+    }
+
+    /**
+     * This test ensures that identical bodies are only compressed once.
+     */
+    @Test
+    public void compressOnce() {
+        var compressor = this.cache.negotiate("gzip");
+        var first = this.cache.compress(compressor, "magix ".repeat(100).getBytes());
+        var second = this.cache.compress(compressor, "magix ".repeat(100).getBytes());
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, this.cache.size());
+    }
+}
@@ -0,0 +1,58 @@
+package moe.seikimo.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public final class ConcurrencyLimiterTest {
+    /**
+     * This test ensures that requests over the limit are queued and then rejected.
+     */
+    @Test
+    public void rejectOverLimit() {
+        var limiter = new ConcurrencyLimiter(1, 10);
+        Assert.assertTrue(limiter.acquire());
+        Assert.assertFalse(limiter.acquire());
+
+        Assert.assertEquals(1, limiter.active());
+        Assert.assertEquals(1, limiter.queued());
+        Assert.assertEquals(1, limiter.rejected());
+
+        limiter.release();
+        Assert.assertTrue(limiter.acquire());
+        Assert.assertEquals(2, limiter.admitted());
+    }
+
+    /**
+     * This test ensures that queued requests are given permits before new requests.
+     */
+    @Test
+    public void admitInOrder() throws InterruptedException {
+        var limiter = new ConcurrencyLimiter(1, 5_000);
+        var order = new CopyOnWriteArrayList<String>();
+        Assert.assertTrue(limiter.acquire());
+
+        var queued = new Thread(() -> {
+            if (limiter.acquire()) {
+                order.add("queued");
+                limiter.release();
+            }
+        });
+        queued.start();
+        // The request is queued once its thread parks.
+        while (queued.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+
+        // The released permit belongs to the queued request, not to the next caller.
+        limiter.release();
+        Assert.assertTrue(limiter.acquire());
+        order.add("new");
+        limiter.release();
+
+        queued.join();
+        Assert.assertEquals(List.of("queued", "new"), order);
+    }
+}
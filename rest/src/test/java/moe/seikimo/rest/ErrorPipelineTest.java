@@ -0,0 +1,66 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.NotFoundResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ErrorPipelineTest {
+    private final StubContext stub = new StubContext();
+
+    public static String handleState(Request request, IllegalStateException exception) {
+        return "Handled " + exception.getMessage();
+    }
+
+    private static ExceptionMapper mapper() throws NoSuchMethodException {
+        return new ExceptionMapper(null, ErrorPipelineTest.class.getDeclaredMethod(
+                "handleState", Request.class, IllegalStateException.class));
+    }
+
+    /**
+     * This test ensures that exception handlers apply to the registered type and its subclasses.
+     */
+    @Test
+    public void mapExceptions() throws Exception {
+        var pipeline = new ErrorPipeline(false, 0);
+        pipeline.register(IllegalStateException.class, ErrorPipelineTest.mapper());
+
+        Assert.assertEquals("Handled state", pipeline.handle(this.stub.build(), new IllegalStateException("state")));
+
+        var subclass = new IllegalStateException("subclass") {};
+        Assert.assertEquals("Handled subclass", pipeline.handle(this.stub.build(), subclass));
+    }
+
+    /**
+     * This test ensures that handlers whose parameter is narrower than the registered type are rejected.
+     */
+    @Test
+    public void rejectNarrowHandlers() throws Exception {
+        var pipeline = new ErrorPipeline(false, 0);
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> pipeline.register(RuntimeException.class, ErrorPipelineTest.mapper()));
+    }
+
+    /**
+     * This test ensures that unhandled exceptions are answered with details in development only.
+     */
+    @Test
+    public void respondByMode() {
+        var development = new ErrorPipeline(false, 0);
+        Assert.assertNull(development.handle(this.stub.build(), new UnsupportedOperationException()));
+        Assert.assertEquals(500, this.stub.status());
+        Assert.assertTrue(this.stub.result(), this.stub.result().contains("respondByMode"));
+
+        development.handle(this.stub.build(), new IllegalArgumentException("Invalid value."));
+        Assert.assertEquals("Invalid value.", this.stub.result());
+
+        var production = new ErrorPipeline(true, 0);
+        production.handle(this.stub.build(), new IllegalArgumentException("Invalid value."));
+        Assert.assertEquals(500, this.stub.status());
+        Assert.assertEquals("Internal Server Error", this.stub.result());
+
+        // Exceptions which describe a response are answered the same way in both modes.
+        production.handle(this.stub.build(), new NotFoundResponse("Missing."));
+        Assert.assertEquals(404, this.stub.status());
+        Assert.assertEquals("Missing.", this.stub.result());
+    }
+}
@@ -0,0 +1,140 @@
+package moe.seikimo.rest;
+
+import io.javalin.Javalin;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+public final class EventStreamTest {
+    private ExecutorService executor;
+    private SubmissionPublisher<String> publisher;
+    private Javalin javalin;
+
+    @Before
+    public void start() {
+        this.executor = Executors.newCachedThreadPool();
+        this.publisher = new SubmissionPublisher<>(this.executor, 4);
+
+        var config = RestConfiguration.builder()
+                .streamBuffer(16)
+                .build();
+        this.javalin = Javalin.create(javalinConfig -> {
+            javalinConfig.appData(RestApplication.CONFIG, config);
+            javalinConfig.http.disableCompression();
+        });
+        this.javalin.get("/events", ctx -> EventStream.events(this.publisher).apply(ctx));
+        this.javalin.get("/chunked", ctx -> EventStream.chunked(this.publisher).apply(ctx));
+        this.javalin.start(0);
+    }
+
+    @After
+    public void stop() {
+        this.publisher.close();
+        this.javalin.stop();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * This test ensures that published items are written to each kind of stream, in order.
+     */
+    @Test
+    public void deliverItems() throws Exception {
+        try (var events = this.connect("/events");
+             var chunks = this.connect("/chunked")) {
+            this.awaitSubscribers(2);
+            var eventLines = EventStreamTest.reader(events);
+            var chunkLines = EventStreamTest.reader(chunks);
+            for (var i = 0; i < 3; i++) {
+                this.publisher.submit("item-" + i + "\n");
+            }
+
+            for (var i = 0; i < 3; i++) {
+                Assert.assertEquals("data: item-" + i, EventStreamTest.next(eventLines, "data:"));
+                Assert.assertEquals("item-" + i, EventStreamTest.next(chunkLines, "item-"));
+            }
+        }
+    }
+
+    /**
+     * This test ensures that a client which stops reading is disconnected, without blocking the publisher.
+     */
+    @Test
+    public void disconnectStalledClients() throws Exception {
+        try (var ignored = this.connect("/events")) {
+            this.awaitSubscribers(1);
+
+            // Far more than the socket buffers hold, so a blocking write would stall the publisher.
+            var payload = "a".repeat(1024);
+            var publishing = this.executor.submit(() -> {
+                for (var i = 0; i < 20_000; i++) {
+                    this.publisher.submit(payload);
+                }
+            });
+            publishing.get(10, TimeUnit.SECONDS);
+
+            this.awaitSubscribers(0);
+        }
+    }
+
+    /**
+     * Opens a stream, without reading it.
+     *
+     * @param path The path of the stream.
+     * @return The socket of the stream.
+     */
+    private Socket connect(String path) throws IOException {
+        var socket = new Socket("localhost", this.javalin.port());
+        socket.setSoTimeout(5000);
+        socket.getOutputStream().write("GET %s HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                .formatted(path).getBytes(StandardCharsets.ISO_8859_1));
+        socket.getOutputStream().flush();
+        return socket;
+    }
+
+    /**
+     * @param socket The socket of a stream.
+     * @return A reader of the stream's lines.
+     */
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param reader The reader of a stream.
+     * @param prefix The prefix of the line.
+     * @return The next line of the stream which starts with the prefix.
+     */
+    private static String next(BufferedReader reader, String prefix) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(prefix)) return line;
+        }
+        throw new IOException("The stream ended.");
+    }
+
+    /**
+     * Waits until the publisher has the amount of subscribers.
+     *
+     * @param amount The amount of subscribers.
+     */
+    private void awaitSubscribers(int amount) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (this.publisher.getNumberOfSubscribers() != amount) {
+            Assert.assertTrue("Expected %d subscribers, found %d"
+                            .formatted(amount, this.publisher.getNumberOfSubscribers()),
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
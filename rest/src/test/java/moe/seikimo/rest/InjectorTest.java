@@ -0,0 +1,111 @@
+package moe.seikimo.rest;
+
+import moe.seikimo.rest.annotations.Component;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class InjectorTest {
+    /**
+     * This test ensures that components are constructed once, after their dependencies.
+     */
+    @Test
+    public void constructInOrder() {
+        var injector = new Injector(Map.of(Settings.class, () -> new Settings("test")));
+        injector.start(List.of(Routes.class, Service.class), ForkJoinPool.commonPool());
+
+        var routes = (Routes) injector.get(Routes.class);
+        var service = (Service) injector.get(Service.class);
+        Assert.assertSame(service, routes.service);
+        Assert.assertSame(injector.get(Settings.class), service.settings);
+        Assert.assertEquals("test", service.settings.name());
+    }
+
+    /**
+     * This test ensures that registered components are constructed once, even if nothing depends on them.
+     */
+    @Test
+    public void constructUnusedComponents() {
+        var calls = new AtomicInteger();
+        var injector = new Injector(Map.of(Settings.class, () -> {
+            calls.incrementAndGet();
+            return new Settings("unused");
+        }));
+        injector.start(List.of(Plain.class), ForkJoinPool.commonPool());
+
+        Assert.assertEquals("unused", ((Settings) injector.get(Settings.class)).name());
+        Assert.assertEquals(1, calls.get());
+    }
+
+    /**
+     * This test ensures that registered components can be injected as their supertypes.
+     */
+    @Test
+    public void injectSupertype() {
+        var injector = new Injector(Map.of(Settings.class, () -> new Settings("test")));
+        injector.start(List.of(Named.class), ForkJoinPool.commonPool());
+
+        var named = (Named) injector.get(Named.class);
+        Assert.assertSame(injector.get(Settings.class), named.record);
+    }
+
+    /**
+     * This test ensures that classes with circular or missing dependencies are skipped.
+     */
+    @Test
+    public void skipUnresolved() {
+        var injector = new Injector(Map.of());
+        injector.start(List.of(Left.class, Service.class, Plain.class), ForkJoinPool.commonPool());
+
+        Assert.assertNull(injector.get(Left.class));
+        Assert.assertNull(injector.get(Service.class));
+        Assert.assertNotNull(injector.get(Plain.class));
+    }
+
+    public record Settings(String name) {
+    }
+
+    @Component
+    public static final class Service {
+        private final Settings settings;
+
+        public Service(Settings settings) {
+            this.settings = settings;
+        }
+    }
+
+    public static final class Routes {
+        private final Service service;
+
+        public Routes(Service service) {
+            this.service = service;
+        }
+    }
+
+    public static final class Named {
+        private final Record record;
+
+        public Named(Record record) {
+            this.record = record;
+        }
+    }
+
+    @Component
+    public static final class Left {
+        public Left(Right right) {
+        }
+    }
+
+    @Component
+    public static final class Right {
+        public Right(Left left) {
+        }
+    }
+
+    public static final class Plain {
+    }
+}
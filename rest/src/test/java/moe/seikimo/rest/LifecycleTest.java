@@ -0,0 +1,56 @@
+package moe.seikimo.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class LifecycleTest {
+    /**
+     * This test ensures that the application is only ready between warming up and draining.
+     */
+    @Test
+    public void readiness() {
+        var lifecycle = new Lifecycle();
+        Assert.assertFalse(lifecycle.isReady());
+        Assert.assertTrue(lifecycle.enter());
+        lifecycle.exit();
+
+        lifecycle.ready();
+        Assert.assertTrue(lifecycle.isReady());
+
+        Assert.assertTrue(lifecycle.drain());
+        Assert.assertFalse(lifecycle.drain());
+        Assert.assertFalse(lifecycle.isReady());
+
+        // Draining can't be undone by a late warm-up.
+        lifecycle.ready();
+        Assert.assertEquals(Lifecycle.State.DRAINING, lifecycle.getState());
+    }
+
+    /**
+     * This test ensures that requests are rejected while draining, and that draining waits for requests in flight.
+     */
+    @Test
+    public void drainWaitsForRequests() throws InterruptedException {
+        var lifecycle = new Lifecycle();
+        lifecycle.ready();
+        Assert.assertTrue(lifecycle.enter());
+
+        lifecycle.drain();
+        Assert.assertFalse(lifecycle.enter());
+        Assert.assertEquals(1, lifecycle.inFlight());
+        Assert.assertFalse(lifecycle.await(20));
+
+        var request = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            lifecycle.exit();
+        });
+        request.start();
+
+        Assert.assertTrue(lifecycle.await(5_000));
+        Assert.assertEquals(0, lifecycle.inFlight());
+        request.join();
+    }
+}
@@ -0,0 +1,36 @@
+package moe.seikimo.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public final class LoadShedderTest {
+    /**
+     * This test ensures that requests over the limit are rejected immediately.
+     */
+    @Test
+    public void shedOverLimit() {
+        var shedder = new LoadShedder(100, 1, 1);
+        Assert.assertTrue(shedder.acquire());
+        Assert.assertFalse(shedder.acquire());
+        Assert.assertEquals(1, shedder.shed());
+
+        shedder.release(0);
+        Assert.assertTrue(shedder.acquire());
+        Assert.assertEquals(2, shedder.admitted());
+    }
+
+    /**
+     * This test ensures that the limit shrinks when latency is over the target.
+     */
+    @Test
+    public void shrinkWhenSlow() throws InterruptedException {
+        var shedder = new LoadShedder(10, 2, 100);
+        Thread.sleep(110);
+
+        Assert.assertTrue(shedder.acquire());
+        shedder.release(TimeUnit.MILLISECONDS.toNanos(40));
+        Assert.assertEquals(50, shedder.limit());
+    }
+}
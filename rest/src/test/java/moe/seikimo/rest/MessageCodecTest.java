@@ -0,0 +1,55 @@
+package moe.seikimo.rest;
+
+import com.google.gson.Gson;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public final class MessageCodecTest {
+    public record Ping(String message) {}
+
+    public record Pong(int count) {}
+
+    private final MessageCodec codec = new MessageCodec(new Gson(), new Class<?>[] {Ping.class, Pong.class});
+
+    @Test
+    public void encodeText() {
+        var frame = (String) this.codec.encode(new Pong(3), false);
+        Assert.assertEquals("{\"type\":\"Pong\",\"data\":{\"count\":3}}", frame);
+        Assert.assertEquals(new Pong(3), this.codec.decode(frame));
+    }
+
+    @Test
+    public void encodeBinary() {
+        var frame = (ByteBuffer) this.codec.encode(new Pong(3), true);
+        Assert.assertEquals(1, frame.getShort(0));
+
+        var bytes = new byte[frame.remaining() + 1];
+        frame.get(bytes, 1, frame.remaining());
+        Assert.assertEquals(new Pong(3), this.codec.decode(bytes, 1, bytes.length - 1));
+    }
+
+    @Test
+    public void rejectUnknownMessages() {
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> this.codec.decode("{\"type\":\"Unknown\",\"data\":{}}"));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> this.codec.decode(new byte[] {0, 2, '{', '}'}, 0, 4));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> this.codec.encode("unknown", true));
+    }
+
+    /**
+     * This test ensures that envelopes without data are rejected, rather than decoded as null.
+     */
+    @Test
+    public void rejectMissingData() {
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> this.codec.decode("{\"type\":\"Ping\"}"));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> this.codec.decode("{\"type\":\"Ping\",\"data\":null}"));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> this.codec.decode(new byte[] {0, 0}, 0, 2));
+    }
+}
@@ -0,0 +1,22 @@
+package moe.seikimo.rest;
+
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ParameterConverterTest {
+    @Test
+    public void convertPrimitives() {
+        Assert.assertEquals(42, ParameterConverter.of(int.class).convert("42"));
+        Assert.assertEquals(42L, ParameterConverter.of(Long.class).convert("42"));
+        Assert.assertEquals(true, ParameterConverter.of(boolean.class).convert("true"));
+        Assert.assertEquals("value", ParameterConverter.of(String.class).convert("value"));
+    }
+
+    @Test
+    public void convertJson() {
+        var value = (JsonObject) ParameterConverter.of(JsonObject.class)
+                .convert("{\"key\":\"value\"}");
+        Assert.assertEquals("value", value.get("key").getAsString());
+    }
+}
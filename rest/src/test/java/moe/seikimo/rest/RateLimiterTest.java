@@ -0,0 +1,92 @@
+package moe.seikimo.rest;
+
+import io.javalin.Javalin;
+import moe.seikimo.rest.annotations.RateLimit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+public final class RateLimiterTest {
+    @RateLimit(value = 10, burst = 2)
+    private static void route() {}
+
+    @RateLimit(value = 1, period = 60_000, scope = RateLimit.Scope.CLIENT)
+    private static void client() {}
+
+    private static RateLimiter limiter(String name, int maxClients) throws Exception {
+        var limit = RateLimiterTest.class.getDeclaredMethod(name).getAnnotation(RateLimit.class);
+        return new RateLimiter(limit, maxClients);
+    }
+
+    /**
+     * This test ensures that bursts are allowed, and tokens refill at the configured rate.
+     */
+    @Test
+    public void refillAtRate() throws Exception {
+        var limiter = RateLimiterTest.limiter("route", 0);
+        var now = System.nanoTime();
+
+        Assert.assertEquals(0, limiter.acquire(null, now));
+        Assert.assertEquals(0, limiter.acquire(null, now));
+
+        var wait = limiter.acquire(null, now);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+        Assert.assertEquals(0, limiter.acquire(null, now + wait));
+    }
+
+    /**
+     * This test ensures that clients have separate limits, up to the cap, and idle clients are swept.
+     */
+    @Test
+    public void limitPerClient() throws Exception {
+        var limiter = RateLimiterTest.limiter("client", 2);
+        var now = System.nanoTime();
+
+        Assert.assertEquals(0, limiter.acquire("a", now));
+        Assert.assertTrue(limiter.acquire("a", now) > 0);
+        Assert.assertEquals(0, limiter.acquire("b", now));
+        Assert.assertEquals(2, limiter.clients());
+
+        // Clients over the cap share one limit.
+        Assert.assertEquals(0, limiter.acquire("c", now));
+        Assert.assertTrue(limiter.acquire("d", now) > 0);
+        Assert.assertEquals(2, limiter.clients());
+
+        // Both buckets are full again a minute later.
+        var later = now + TimeUnit.MINUTES.toNanos(1);
+        limiter.sweep(later);
+        Assert.assertEquals(0, limiter.clients());
+        Assert.assertEquals(0, limiter.acquire("c", later));
+        Assert.assertEquals(1, limiter.clients());
+    }
+
+    /**
+     * This test ensures that clients are identified by their connection, not by headers they can set.
+     */
+    @Test
+    public void ignoreForwardingHeaders() throws Exception {
+        var javalin = Javalin.create();
+        javalin.get("/limited", new RateLimitingHandler(ctx -> ctx.result("ok"),
+                RateLimiterTest.limiter("client", 0), null));
+        javalin.start(0);
+
+        try {
+            var client = HttpClient.newHttpClient();
+            for (var i = 0; i < 2; i++) {
+                var response = client.send(HttpRequest.newBuilder(URI.create(
+                                "http://localhost:" + javalin.port() + "/limited"))
+                        .header("X-Forwarded-For", "10.0.0." + i)
+                        .header("CF-Connecting-IP", "10.0.1." + i)
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                Assert.assertEquals(i == 0 ? 200 : 429, response.statusCode());
+            }
+        } finally {
+            javalin.stop();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package moe.seikimo.rest;
+
+import io.javalin.Javalin;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+import moe.seikimo.rest.annotations.params.Param;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+public final class RequestHandlerTest {
+    private final String greeting = "Hello";
+
+    private final StubContext stub = new StubContext();
+
+    public static String none() {
+        return "None";
+    }
+
+    public String context(Request request) {
+        return this.greeting + " " + request.param("name");
+    }
+
+    public String args(@Param("name") String name, @Param("count") int count) {
+        return (this.greeting + " " + name).repeat(count);
+    }
+
+    public static String fail() {
+        throw new IllegalStateException("Failed.");
+    }
+
+    public static CompletableFuture<String> later() {
+        return CompletableFuture.supplyAsync(() -> "Later",
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+    }
+
+    public static CompletionStage<Response<String>> created() {
+        return CompletableFuture.supplyAsync(() -> new Response<>("Created", HttpStatus.CREATED));
+    }
+
+    public static CompletableFuture<String> missing() {
+        return CompletableFuture.failedFuture(new NotFoundResponse("Missing."));
+    }
+
+    public static CompletableFuture<String> broken() {
+        return CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("Broken.");
+        });
+    }
+
+    public static CompletableFuture<String> nothing() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public static final class Other {
+        public String context(Request request) {
+            return "Other";
+        }
+    }
+
+    private String dispatch(String name, Map<String, String> parameters) throws NoSuchMethodException {
+        return this.dispatch(this, name, parameters);
+    }
+
+    private String dispatch(Object instance, String name, Map<String, String> parameters) throws NoSuchMethodException {
+        for (var handler : instance.getClass().getMethods()) {
+            if (!handler.getName().equals(name)) continue;
+
+            var pending = new RequestHandler(instance, handler).dispatch(this.stub.pathParams(parameters).build());
+            Assert.assertNull(pending);
+            return this.stub.result();
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    /**
+     * This test ensures that each kind of handler is invoked with the right arguments.
+     */
+    @Test
+    public void dispatchHandlers() throws NoSuchMethodException {
+        Assert.assertEquals("None", this.dispatch("none", Map.of()));
+        Assert.assertEquals("Hello World", this.dispatch("context", Map.of("name", "World")));
+        Assert.assertEquals("Hello AHello A", this.dispatch("args", Map.of("name", "A", "count", "2")));
+
+        // Each route is compiled separately, so handlers of the same shape don't share an invoker.
+        Assert.assertEquals("Other", this.dispatch(new Other(), "context", Map.of()));
+        Assert.assertEquals("Hello World", this.dispatch("context", Map.of("name", "World")));
+    }
+
+    /**
+     * This test ensures that exceptions thrown by handlers, or while binding arguments, are answered as errors.
+     */
+    @Test
+    public void dispatchFailures() throws NoSuchMethodException {
+        this.dispatch("fail", Map.of());
+        Assert.assertEquals(500, this.stub.status());
+
+        this.dispatch("args", Map.of("name", "A", "count", "two"));
+        Assert.assertEquals(400, this.stub.status());
+        Assert.assertEquals("Parameter count is invalid.", this.stub.result());
+    }
+
+    /**
+     * This test ensures that asynchronous results are applied once they complete,
+     * and that failures are answered by the error pipeline.
+     */
+    @Test
+    public void asynchronousResults() throws Exception {
+        var javalin = Javalin.create();
+        for (var name : new String[] {"later", "created", "missing", "broken", "nothing"}) {
+            javalin.get("/" + name, new RequestHandler(this,
+                    RequestHandlerTest.class.getMethod(name)));
+        }
+        javalin.start(0);
+
+        try {
+            var client = HttpClient.newHttpClient();
+            var later = RequestHandlerTest.get(client, javalin, "later");
+            Assert.assertEquals(200, later.statusCode());
+            Assert.assertEquals("Later", later.body());
+
+            var created = RequestHandlerTest.get(client, javalin, "created");
+            Assert.assertEquals(201, created.statusCode());
+            Assert.assertEquals("Created", created.body());
+
+            var missing = RequestHandlerTest.get(client, javalin, "missing");
+            Assert.assertEquals(404, missing.statusCode());
+            Assert.assertEquals("Missing.", missing.body());
+
+            // Exceptions thrown while completing are unwrapped from their CompletionException.
+            var broken = RequestHandlerTest.get(client, javalin, "broken");
+            Assert.assertEquals(500, broken.statusCode());
+            Assert.assertTrue(broken.body(), broken.body().startsWith(RequestHandlerTest.class.getName()));
+
+            var nothing = RequestHandlerTest.get(client, javalin, "nothing");
+            Assert.assertEquals(200, nothing.statusCode());
+            Assert.assertEquals("", nothing.body());
+        } finally {
+            javalin.stop();
+        }
+    }
+
+    private static HttpResponse<String> get(HttpClient client, Javalin javalin, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:%d/%s"
+                .formatted(javalin.port(), path))).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,148 @@
+package moe.seikimo.rest;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ContentTooLargeResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class RequestTest {
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    /**
+     * Creates a request which counts how often the parameter maps are fetched.
+     */
+    private Request request(Map<String, String> path, Map<String, List<String>> query) {
+        return this.request(path, query, new byte[0], 0);
+    }
+
+    /**
+     * Creates a request with a body.
+     *
+     * @param declared The declared length of the body.
+     */
+    private Request request(Map<String, String> path, Map<String, List<String>> query,
+                            byte[] body, int declared) {
+        var context = new StubContext()
+                .on("pathParamMap", args -> {
+                    this.lookups.incrementAndGet();
+                    return path;
+                })
+                .on("queryParamMap", args -> {
+                    this.lookups.incrementAndGet();
+                    return query;
+                })
+                .on("bodyInputStream", args -> new ByteArrayInputStream(body))
+                .on("contentLength", args -> declared)
+                .on("characterEncoding", args -> null)
+                .on("appData", args -> {
+                    throw new IllegalStateException();
+                })
+                .build();
+        return new Request(context);
+    }
+
+    @Test
+    public void parsePrimitives() {
+        var request = this.request(Map.of(
+                "int", "42", "long", "8589934592", "double", "4.5", "bool", "true"), Map.of());
+
+        Assert.assertEquals(42, request.paramInt("int"));
+        Assert.assertEquals(8589934592L, request.paramLong("long"));
+        Assert.assertEquals(4.5, request.paramDouble("double"), 0);
+        Assert.assertTrue(request.paramBoolean("bool"));
+
+        Assert.assertEquals(7, request.paramInt("missing", 7));
+        Assert.assertThrows(IllegalArgumentException.class, () -> request.paramInt("missing"));
+        Assert.assertThrows(NumberFormatException.class, () -> request.paramInt("double"));
+    }
+
+    @Test
+    public void memoizeParameters() {
+        var request = this.request(Map.of("id", "42", "json", "{\"key\":\"value\"}"),
+                Map.of("name", List.of("magix")));
+
+        for (var i = 0; i < 3; i++) {
+            Assert.assertEquals(42, request.paramInt("id"));
+            Assert.assertEquals(Integer.valueOf(42), request.param("id", Integer.class));
+            Assert.assertEquals("magix", request.query("name", "none"));
+        }
+        Assert.assertEquals(2, this.lookups.get());
+
+        var json = request.param("json", JsonObject.class);
+        Assert.assertSame(json, request.param("json", JsonObject.class));
+        Assert.assertEquals("value", json.get("key").getAsString());
+    }
+
+    /**
+     * This test ensures that values which fail to convert aren't cached.
+     */
+    @Test
+    public void retryInvalidParameters() {
+        var request = this.request(Map.of("id", "4x", "json", "{"), Map.of());
+
+        for (var i = 0; i < 2; i++) {
+            Assert.assertThrows(NumberFormatException.class, () -> request.param("id", 0, Integer.class));
+            Assert.assertThrows(JsonParseException.class, () -> request.param("json", JsonObject.class));
+        }
+    }
+
+    @Test
+    public void queryFallback() {
+        var request = this.request(Map.of(), Map.of("name", List.of("magix")));
+
+        Assert.assertEquals("magix", request.query("name"));
+        Assert.assertNull(request.query("missing"));
+        Assert.assertEquals("fallback", request.query("missing", "fallback"));
+    }
+
+    @Test
+    public void decodeBody() {
+        var body = "{\"key\":\"value\"}".getBytes();
+        var request = this.request(Map.of(), Map.of(), body, body.length);
+
+        var json = request.body(JsonObject.class);
+        Assert.assertEquals("value", json.get("key").getAsString());
+        Assert.assertSame(json, request.body(JsonObject.class));
+        Assert.assertThrows(IllegalStateException.class, request::bodyAsBytes);
+
+        var invalid = this.request(Map.of(), Map.of(), "{".getBytes(), 1);
+        Assert.assertThrows(BadRequestResponse.class, () -> invalid.body(JsonObject.class));
+
+        var empty = this.request(Map.of(), Map.of(), new byte[0], 0);
+        Assert.assertNull(empty.body(JsonObject.class));
+    }
+
+    /**
+     * This test ensures that bodies must be exactly one strict JSON value.
+     */
+    @Test
+    public void rejectLenientBody() {
+        for (var body : new String[] {"{} trailing", "{}{}", "{key:\"value\"}", "{\"key\":'value'}", "[1,]", "\"text\""}) {
+            var bytes = body.getBytes();
+            var request = this.request(Map.of(), Map.of(), bytes, bytes.length);
+            Assert.assertThrows(body, BadRequestResponse.class, () -> request.body(JsonObject.class));
+        }
+
+        var padded = "  {\"key\":1}\n".getBytes();
+        Assert.assertEquals(1, this.request(Map.of(), Map.of(), padded, padded.length)
+                .body(JsonObject.class).get("key").getAsInt());
+    }
+
+    @Test
+    public void rejectLargeBody() {
+        var body = new byte[2_000_000];
+
+        // Rejected from the declared length, and while reading a body without one.
+        Assert.assertThrows(ContentTooLargeResponse.class, () -> this.request(
+                Map.of(), Map.of(), body, body.length).bodyStream());
+        Assert.assertThrows(ContentTooLargeResponse.class, () -> this.request(
+                Map.of(), Map.of(), body, -1).bodyAsBytes());
+    }
+}
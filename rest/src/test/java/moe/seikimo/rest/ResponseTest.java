@@ -0,0 +1,81 @@
+package moe.seikimo.rest;
+
+import io.javalin.Javalin;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public final class ResponseTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private Javalin javalin;
+
+    @Before
+    public void start() {
+        this.javalin = Javalin.create(config -> config.http.disableCompression());
+        this.javalin.get("/iterator", ctx -> new Response<>(
+                Arrays.asList("a", null, "b").iterator()).apply(ctx));
+        this.javalin.get("/stream", ctx -> new Response<>(Stream.of(1, 2, 3)
+                .map(i -> Map.of("value", i))
+                .onClose(this.closed::countDown)).apply(ctx));
+        this.javalin.get("/object", ctx -> new Response<>(Map.of("value", 1)).streaming().apply(ctx));
+        this.javalin.get("/endless", ctx -> new Response<>(Stream.generate(() -> "x".repeat(1024))
+                .onClose(this.closed::countDown)).apply(ctx));
+        this.javalin.start(0);
+    }
+
+    @After
+    public void stop() {
+        this.javalin.stop();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return this.client.send(HttpRequest.newBuilder(URI.create("http://localhost:%d%s"
+                .formatted(this.javalin.port(), path))).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * This test ensures that iterators, streams and objects are written as JSON.
+     */
+    @Test
+    public void streamBodies() throws Exception {
+        var iterator = this.get("/iterator");
+        Assert.assertEquals("[\"a\",null,\"b\"]", iterator.body());
+        Assert.assertEquals("application/json", iterator.headers().firstValue("Content-Type").orElse(null));
+
+        Assert.assertEquals("[{\"value\":1},{\"value\":2},{\"value\":3}]", this.get("/stream").body());
+        Assert.assertTrue(this.closed.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals("{\"value\":1}", this.get("/object").body());
+    }
+
+    /**
+     * This test ensures that streams are closed when the client disconnects while they are written.
+     */
+    @Test
+    public void closeStreamOnAbort() throws Exception {
+        try (var socket = new Socket("localhost", this.javalin.port())) {
+            socket.getOutputStream().write("GET /endless HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+
+            // Wait for the body to start.
+            Assert.assertTrue(socket.getInputStream().readNBytes(4096).length > 0);
+        }
+
+        Assert.assertTrue(this.closed.await(10, TimeUnit.SECONDS));
+    }
+}
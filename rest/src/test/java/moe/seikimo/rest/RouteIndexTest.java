@@ -0,0 +1,22 @@
+package moe.seikimo.rest;
+
+import moe.seikimo.rest.annotations.NotFound;
+import moe.seikimo.rest.annotations.methods.repeat.GETs;
+import moe.seikimo.rest.example.BasicApplication;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class RouteIndexTest {
+    /**
+     * This test ensures that the route processor indexed the example application.
+     */
+    @Test
+    public void loadIndex() {
+        var index = RouteIndex.load(
+                BasicApplication.class.getClassLoader(),
+                BasicApplication.class.getPackageName());
+
+        Assert.assertEquals(1, index.getMethodsAnnotatedWith(NotFound.class).size());
+        Assert.assertFalse(index.getMethodsAnnotatedWith(GETs.class).isEmpty());
+    }
+}
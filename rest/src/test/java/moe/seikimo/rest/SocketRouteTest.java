@@ -0,0 +1,53 @@
+package moe.seikimo.rest;
+
+import com.google.gson.Gson;
+import moe.seikimo.rest.annotations.WebSocket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class SocketRouteTest {
+    public record Ping(String message) {}
+
+    public record Pong(int count) {}
+
+    public static class Receiver {
+        final List<Object> received = new ArrayList<>();
+
+        public void onPing(Ping ping) {
+            this.received.add(ping);
+        }
+    }
+
+    public static final class ExtendedReceiver extends Receiver {
+        public void onPong(Pong pong) {
+            this.received.add(pong);
+        }
+    }
+
+    @WebSocket(value = "/socket", messages = {Ping.class, Pong.class})
+    public Receiver socket() {
+        return new ExtendedReceiver();
+    }
+
+    /**
+     * This test ensures that receiver methods are resolved from the receiver's class, not the declared type.
+     */
+    @Test
+    public void dispatchToSubclass() throws NoSuchMethodException {
+        var method = SocketRouteTest.class.getMethod("socket");
+        var route = new SocketRoute(this, method, method.getAnnotation(WebSocket.class), new Gson());
+
+        var extended = new ExtendedReceiver();
+        route.dispatch(extended, new Ping("hello"));
+        route.dispatch(extended, new Pong(3));
+        Assert.assertEquals(List.of(new Ping("hello"), new Pong(3)), extended.received);
+
+        // Receivers of the declared type only receive the messages they have methods for.
+        var receiver = new Receiver();
+        route.dispatch(receiver, new Pong(3));
+        Assert.assertEquals(List.of(), receiver.received);
+    }
+}
@@ -0,0 +1,88 @@
+package moe.seikimo.rest;
+
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A context for tests which don't need a server.
+ * It records the status and result of the response; other methods must be answered with {@link #on},
+ * and fail if they aren't.
+ */
+final class StubContext {
+    private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+
+    private int status = 200;
+    private String result;
+
+    /**
+     * Answers a method of the context.
+     *
+     * @param method The name of the method.
+     * @param answer Returns the result of the method, from its arguments.
+     * @return This stub.
+     */
+    StubContext on(String method, Function<Object[], Object> answer) {
+        this.answers.put(method, answer);
+        return this;
+    }
+
+    /**
+     * Answers the path parameter methods of the context.
+     *
+     * @param parameters The path parameters.
+     * @return This stub.
+     */
+    StubContext pathParams(Map<String, String> parameters) {
+        return this
+                .on("pathParamMap", args -> parameters)
+                .on("pathParam", args -> parameters.get((String) args[0]));
+    }
+
+    /**
+     * @return The status of the response.
+     */
+    int status() {
+        return this.status;
+    }
+
+    /**
+     * @return The result of the response, or null if none was set.
+     */
+    String result() {
+        return this.result;
+    }
+
+    /**
+     * @return The context.
+     */
+    Context build() {
+        return (Context) Proxy.newProxyInstance(Context.class.getClassLoader(),
+                new Class<?>[] {Context.class}, (proxy, method, args) -> {
+                    var answer = this.answers.get(method.getName());
+                    if (answer != null) {
+                        return answer.apply(args);
+                    }
+
+                    return switch (method.getName()) {
+                        case "status" -> {
+                            if (args == null) yield HttpStatus.forStatus(this.status);
+                            this.status = args[0] instanceof HttpStatus status ?
+                                    status.getCode() : (int) args[0];
+                            yield proxy;
+                        }
+                        case "result" -> {
+                            this.result = args[0] instanceof byte[] bytes ?
+                                    new String(bytes, StandardCharsets.UTF_8) : (String) args[0];
+                            yield proxy;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+}
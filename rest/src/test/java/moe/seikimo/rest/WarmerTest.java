@@ -0,0 +1,92 @@
+package moe.seikimo.rest;
+
+import io.javalin.Javalin;
+import moe.seikimo.rest.annotations.Cached;
+import moe.seikimo.rest.annotations.RateLimit;
+import moe.seikimo.rest.annotations.WarmUp;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class WarmerTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    private Javalin javalin;
+
+    @Cached
+    @RateLimit(value = 1, period = 60_000)
+    @WarmUp(value = "/limited", iterations = 20)
+    private static void route() {}
+
+    @WarmUp
+    private static void implicit() {}
+
+    @WarmUp(iterations = 3)
+    public void explicit() {
+        this.calls.incrementAndGet();
+    }
+
+    @Before
+    public void start() throws NoSuchMethodException {
+        var method = WarmerTest.class.getDeclaredMethod("route");
+        var cached = new CachingHandler(ctx -> {
+            this.calls.incrementAndGet();
+            ctx.result("limited");
+        }, method.getAnnotation(Cached.class));
+        var limited = new RateLimitingHandler(cached,
+                new RateLimiter(method.getAnnotation(RateLimit.class), 0), ctx -> null);
+
+        this.javalin = Javalin.create();
+        this.javalin.get("/limited", limited);
+        this.javalin.start(0);
+    }
+
+    @After
+    public void stop() {
+        this.javalin.stop();
+    }
+
+    /**
+     * This test ensures that warm-up requests reach the handler,
+     * without filling the cache or taking rate limit tokens.
+     */
+    @Test
+    public void bypassCachingAndRateLimits() throws Throwable {
+        int failures;
+        try (var warmer = new Warmer(this.javalin.port())) {
+            failures = warmer.warmUp(null, WarmerTest.class.getDeclaredMethod("route"));
+        }
+
+        // A request can fail in transit, so only requests which succeeded must have reached the handler.
+        var warmed = this.calls.get();
+        Assert.assertTrue(failures < 20);
+        Assert.assertTrue(warmed + " calls, " + failures + " failures", warmed >= 20 - failures && warmed <= 20);
+
+        var response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + this.javalin.port() + "/limited")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(warmed + 1, this.calls.get());
+    }
+
+    /**
+     * This test ensures that methods which aren't routes are only invoked as often as they ask to be.
+     */
+    @Test
+    public void requireIterationsForMethods() throws Throwable {
+        try (var warmer = new Warmer(this.javalin.port())) {
+            Assert.assertThrows(IllegalArgumentException.class,
+                    () -> warmer.warmUp(null, WarmerTest.class.getDeclaredMethod("implicit")));
+            Assert.assertEquals(0, this.calls.get());
+
+            warmer.warmUp(this, WarmerTest.class.getDeclaredMethod("explicit"));
+            Assert.assertEquals(3, this.calls.get());
+        }
+    }
+}
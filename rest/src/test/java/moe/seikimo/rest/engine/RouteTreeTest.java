@@ -0,0 +1,75 @@
+package moe.seikimo.rest.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class RouteTreeTest {
+    private static RouteTree<String> tree(String... templates) {
+        var tree = new RouteTree<String>();
+        for (var template : templates) {
+            tree.add(template, template);
+        }
+        return tree;
+    }
+
+    private static String match(RouteTree<String> tree, String path) {
+        var route = tree.match(path, new int[tree.maxParameters() * 2]);
+        return route == null ? null : route.value();
+    }
+
+    /**
+     * This test ensures that static text wins over parameters, and falls back to them when it doesn't match.
+     */
+    @Test
+    public void preferStaticText() {
+        var tree = RouteTreeTest.tree("/", "/users", "/users/me", "/users/{id}", "/users/{id}/posts", "/uploads");
+
+        Assert.assertEquals("/", RouteTreeTest.match(tree, "/"));
+        Assert.assertEquals("/users", RouteTreeTest.match(tree, "/users"));
+        Assert.assertEquals("/users/me", RouteTreeTest.match(tree, "/users/me"));
+        Assert.assertEquals("/users/{id}", RouteTreeTest.match(tree, "/users/men"));
+        Assert.assertEquals("/users/{id}/posts", RouteTreeTest.match(tree, "/users/me/posts"));
+        Assert.assertEquals("/uploads", RouteTreeTest.match(tree, "/uploads"));
+
+        Assert.assertNull(RouteTreeTest.match(tree, "/user"));
+        Assert.assertNull(RouteTreeTest.match(tree, "/users/me/comments"));
+        Assert.assertNull(RouteTreeTest.match(tree, "/users//posts"));
+    }
+
+    /**
+     * This test ensures that trailing slashes are ignored, and parameters are recorded as offsets.
+     */
+    @Test
+    public void recordParameters() {
+        var tree = RouteTreeTest.tree("/users/{id}/posts/{post}/");
+        var bounds = new int[tree.maxParameters() * 2];
+        var path = "/users/42/posts/abc/";
+
+        var route = tree.match(path, bounds);
+        Assert.assertNotNull(route);
+        Assert.assertArrayEquals(new String[] {"id", "post"}, route.parameters());
+        Assert.assertEquals("42", path.substring(bounds[0], bounds[1]));
+        Assert.assertEquals("abc", path.substring(bounds[2], bounds[3]));
+
+        Assert.assertNotNull(tree.match("/users/42/posts/abc", bounds));
+    }
+
+    /**
+     * This test ensures that invalid and duplicate templates are rejected without changing the tree.
+     */
+    @Test
+    public void rejectInvalidTemplates() {
+        var tree = RouteTreeTest.tree("/users/{id}");
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.add("/users/{name}", ""));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.add("/files/*", ""));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.add("/files/<path>", ""));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.add("/files/{name}.txt", ""));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.add("/files/{}", ""));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.add("/files/a{name}", ""));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.add("/files/{a{b}}", ""));
+
+        Assert.assertEquals(1, tree.maxParameters());
+        Assert.assertNull(RouteTreeTest.match(tree, "/files/a"));
+    }
+}
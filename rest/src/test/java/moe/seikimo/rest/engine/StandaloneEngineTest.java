@@ -0,0 +1,293 @@
+package moe.seikimo.rest.engine;
+
+import io.javalin.http.HandlerType;
+import moe.seikimo.rest.EventStream;
+import moe.seikimo.rest.RestConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.SubmissionPublisher;
+
+public final class StandaloneEngineTest {
+    private StandaloneEngine engine;
+
+    @Before
+    public void start() {
+        this.engine = new StandaloneEngine(RestConfiguration.builder()
+                .maxBodySize(1024)
+                .engineThreads(4)
+                .build());
+        this.engine.add(HandlerType.GET, "/hello", ctx -> ctx.result("Hello"));
+        this.engine.add(HandlerType.GET, "/users/{id}", ctx -> ctx.result("User " + ctx.pathParam("id")));
+        this.engine.add(HandlerType.POST, "/echo", ctx -> ctx.result(ctx.bodyAsBytes()));
+        this.engine.add(HandlerType.GET, "/header", ctx -> ctx
+                .header("X-Test", ctx.queryParam("v"))
+                .result("ok"));
+        this.engine.add(HandlerType.GET, "/events", ctx ->
+                EventStream.events(new SubmissionPublisher<>()).apply(ctx));
+        this.engine.start(0);
+    }
+
+    @After
+    public void stop() {
+        this.engine.stop();
+    }
+
+    /**
+     * This test ensures that connections are kept alive, and pipelined requests are answered in order.
+     */
+    @Test
+    public void keepAliveAndPipelining() throws IOException {
+        try (var client = new Client(this.engine.port())) {
+            client.send("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assert.assertEquals("Hello", client.read().body());
+
+            client.send("GET /users/1 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                    "GET /users/2 HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                    "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3\r\n\r\nabc");
+            Assert.assertEquals("User 1", client.read().body());
+            Assert.assertEquals("User 2", client.read().body());
+            Assert.assertEquals("abc", client.read().body());
+
+            client.send("GET /missing HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assert.assertEquals(404, client.read().status());
+        }
+
+        // HTTP/1.0 connections are closed after the response.
+        try (var client = new Client(this.engine.port())) {
+            client.send("GET /hello HTTP/1.0\r\n\r\n");
+            var response = client.read();
+            Assert.assertEquals("close", response.header("Connection"));
+            Assert.assertTrue(client.closed());
+        }
+    }
+
+    /**
+     * This test ensures that chunked bodies are decoded as they arrive, including trailers.
+     */
+    @Test
+    public void chunkedBodies() throws IOException {
+        try (var client = new Client(this.engine.port())) {
+            var request = "POST /echo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                    "5;name=value\r\nHello\r\n7\r\n, World\r\n0\r\nX-Trailer: yes\r\n\r\n";
+
+            // Send the request a few bytes at a time.
+            for (var i = 0; i < request.length(); i += 7) {
+                client.send(request.substring(i, Math.min(request.length(), i + 7)));
+                client.pause();
+            }
+            Assert.assertEquals("Hello, World", client.read().body());
+
+            // The connection is still usable.
+            client.send("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assert.assertEquals("Hello", client.read().body());
+        }
+    }
+
+    /**
+     * This test ensures that clients waiting for 100 Continue are asked to send the body.
+     */
+    @Test
+    public void expectContinue() throws IOException {
+        try (var client = new Client(this.engine.port())) {
+            client.send("POST /echo HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\nContent-Length: 4\r\n\r\n");
+            Assert.assertEquals(100, client.read().status());
+
+            client.send("body");
+            Assert.assertEquals("body", client.read().body());
+        }
+    }
+
+    /**
+     * This test ensures that HEAD requests are answered by GET routes, without the body.
+     */
+    @Test
+    public void headRequests() throws IOException {
+        try (var client = new Client(this.engine.port())) {
+            client.send("HEAD /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            var response = client.readHead();
+            Assert.assertEquals(200, response.status());
+            Assert.assertEquals("5", response.header("Content-Length"));
+
+            // The next response follows directly, so no body was sent.
+            client.send("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assert.assertEquals("Hello", client.read().body());
+        }
+    }
+
+    /**
+     * This test ensures that malformed and ambiguous requests are rejected, and their connections closed.
+     */
+    @Test
+    public void rejectMalformedRequests() throws IOException {
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n-5\r\nabc\r\n0\r\n\r\n");
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n+5\r\nHello\r\n0\r\n\r\n");
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n100000000\r\n");
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nabcXY0\r\n\r\n");
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nContent-Length: 3\r\n" +
+                "Transfer-Encoding: chunked\r\n\r\n0\r\n\r\nGET /hello HTTP/1.1\r\n\r\n");
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nContent-Length: 3\r\nContent-Length: 4\r\n\r\nabcd");
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nContent-Length: +3\r\n\r\nabc");
+        this.expectRejected(400, "POST /echo HTTP/1.1\r\nContent-Length : 3\r\n\r\nabc");
+        this.expectRejected(400, "GET /hello\r\n\r\n");
+        this.expectRejected(413, "POST /echo HTTP/1.1\r\nContent-Length: 4096\r\n\r\n");
+        this.expectRejected(431, "GET /hello HTTP/1.1\r\nX-Large: " + "a".repeat(9000) + "\r\n\r\n");
+        this.expectRejected(501, "POST /echo HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n");
+
+        // Repeated lengths which agree are accepted.
+        try (var client = new Client(this.engine.port())) {
+            client.send("POST /echo HTTP/1.1\r\nContent-Length: 3\r\nContent-Length: 3\r\n\r\nabc");
+            Assert.assertEquals("abc", client.read().body());
+        }
+    }
+
+    /**
+     * This test ensures that headers can't inject lines into the response.
+     */
+    @Test
+    public void rejectHeaderInjection() throws IOException {
+        try (var client = new Client(this.engine.port())) {
+            client.send("GET /header?v=a%0D%0ASet-Cookie:%20evil=1 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            var response = client.read();
+            Assert.assertEquals(500, response.status());
+            Assert.assertNull(response.header("Set-Cookie"));
+
+            client.send("GET /header?v=fine HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assert.assertEquals("fine", client.read().header("X-Test"));
+        }
+    }
+
+    /**
+     * This test ensures that streamed responses are rejected, since they would never be sent.
+     */
+    @Test
+    public void rejectStreams() throws IOException {
+        try (var client = new Client(this.engine.port())) {
+            client.send("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            var response = client.read();
+            Assert.assertEquals(501, response.status());
+            Assert.assertNotEquals("text/event-stream", response.header("Content-Type"));
+
+            client.send("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assert.assertEquals("Hello", client.read().body());
+        }
+    }
+
+    /**
+     * Sends a request which must be rejected, then checks that the server still answers.
+     *
+     * @param status The expected status.
+     * @param request The raw request.
+     */
+    private void expectRejected(int status, String request) throws IOException {
+        try (var client = new Client(this.engine.port())) {
+            client.send(request);
+            var response = client.read();
+            Assert.assertEquals(request, status, response.status());
+            Assert.assertEquals("close", response.header("Connection"));
+            Assert.assertTrue(client.closed());
+        }
+
+        try (var client = new Client(this.engine.port())) {
+            client.send("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assert.assertEquals("Hello", client.read().body());
+        }
+    }
+
+    /**
+     * A parsed response.
+     */
+    private record Response(int status, Map<String, String> headers, String body) {
+        private String header(String name) {
+            return this.headers.get(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * A raw HTTP client.
+     */
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final InputStream input;
+        private final OutputStream output;
+
+        private Client(int port) throws IOException {
+            this.socket = new Socket("localhost", port);
+            this.socket.setSoTimeout(5000);
+            this.input = this.socket.getInputStream();
+            this.output = this.socket.getOutputStream();
+        }
+
+        private void send(String data) throws IOException {
+            this.output.write(data.getBytes(StandardCharsets.ISO_8859_1));
+            this.output.flush();
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * @return The head of the next response.
+         */
+        private Response readHead() throws IOException {
+            var head = new ByteArrayOutputStream();
+            while (true) {
+                var b = this.input.read();
+                if (b < 0) throw new IOException("The connection was closed.");
+                head.write(b);
+
+                var bytes = head.toByteArray();
+                var length = bytes.length;
+                if (length >= 4 && bytes[length - 4] == '\r' && bytes[length - 3] == '\n' &&
+                        bytes[length - 2] == '\r' && bytes[length - 1] == '\n') break;
+            }
+
+            var lines = head.toString(StandardCharsets.ISO_8859_1).split("\r\n");
+            var headers = new HashMap<String, String>();
+            for (var i = 1; i < lines.length; i++) {
+                var colon = lines[i].indexOf(':');
+                headers.put(lines[i].substring(0, colon).toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim());
+            }
+            return new Response(Integer.parseInt(lines[0].split(" ")[1]), headers, "");
+        }
+
+        /**
+         * @return The next response.
+         */
+        private Response read() throws IOException {
+            var head = this.readHead();
+            var length = head.header("Content-Length");
+            var body = length == null ? new byte[0] : this.input.readNBytes(Integer.parseInt(length));
+            return new Response(head.status(), head.headers(), new String(body, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @return Whether the server closed the connection.
+         */
+        private boolean closed() throws IOException {
+            return this.input.read() < 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.socket.close();
+        }
+    }
+}
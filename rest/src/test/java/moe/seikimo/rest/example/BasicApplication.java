@@ -3,31 +3,69 @@ package moe.seikimo.rest.example;
 import com.google.gson.JsonObject;
 import io.javalin.http.HttpStatus;
 import moe.seikimo.general.JObject;
+import moe.seikimo.rest.EventStream;
 import moe.seikimo.rest.Request;
 import moe.seikimo.rest.Response;
 import moe.seikimo.rest.RestApplication;
+import moe.seikimo.rest.RestConfiguration;
+import moe.seikimo.rest.SocketReceiver;
+import moe.seikimo.rest.SocketSession;
+import moe.seikimo.rest.annotations.Cached;
+import moe.seikimo.rest.annotations.Coalesced;
+import moe.seikimo.rest.annotations.ExceptionHandler;
 import moe.seikimo.rest.annotations.NotFound;
+import moe.seikimo.rest.annotations.RateLimit;
+import moe.seikimo.rest.annotations.WarmUp;
+import moe.seikimo.rest.annotations.WebSocket;
 import moe.seikimo.rest.annotations.methods.GET;
 import moe.seikimo.rest.annotations.methods.POST;
 import moe.seikimo.rest.annotations.methods.PUT;
+import moe.seikimo.rest.annotations.params.Body;
+import moe.seikimo.rest.annotations.params.Header;
+import moe.seikimo.rest.annotations.params.Param;
+import moe.seikimo.rest.annotations.params.Query;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public final class BasicApplication {
     /**
      * The main method of the application.
      *
-     * @param args The arguments passed to the application.
+     * @param args The arguments passed to the application; the first selects the engine.
      */
     public static void main(String[] args) {
-        RestApplication.run(BasicApplication.class);
+        RestApplication.run(BasicApplication.class, RestConfiguration.builder()
+                .engine(args.length > 0 ?
+                        RestConfiguration.Engine.valueOf(args[0]) : RestConfiguration.Engine.JAVALIN)
+                .metricsPath("/metrics")
+                .readinessPath("/ready")
+                .shutdownHook(true)
+                .component(Clock.class, Clock::systemUTC)
+                .build());
     }
 
+    private final SubmissionPublisher<JsonObject> messages = new SubmissionPublisher<>();
+    private final AtomicInteger reports = new AtomicInteger();
+
     @NotFound
     public String notFound() {
         return "Unable to route this request!";
     }
 
+    @ExceptionHandler(UnsupportedOperationException.class)
+    public Response<String> unsupported(UnsupportedOperationException exception) {
+        return new Response<>(exception.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+    }
+
     @GET
     @GET("/hello")
+    @WarmUp(iterations = 1_000)
     public String index() {
         return "Hello World!";
     }
@@ -43,15 +81,106 @@ public final class BasicApplication {
 
     @GET("/route")
     @GET("/route/{param}")
+    @Cached(ttl = 5_000)
     public String route(Request request) {
         var param = request.param("param", "none");
         return "You requested to check out %s, with a parameter of %s!"
                 .formatted(request.route(), param);
     }
 
+    @GET("/typed/{id}")
+    public String typed(
+            @Param("id") int id,
+            @Query(value = "name", required = false) String name,
+            @Header(value = "User-Agent", required = false) String agent) {
+        return "Item %d was requested by %s using %s."
+                .formatted(id, name, agent);
+    }
+
+    @POST("/echo")
+    public Response<JsonObject> echo(@Body JsonObject body) {
+        return new Response<>(body);
+    }
+
+    @GET("/events")
+    public EventStream events() {
+        return EventStream.events(this.messages);
+    }
+
+    @GET("/feed")
+    public EventStream feed() {
+        return EventStream.chunked(this.messages);
+    }
+
+    @POST("/events")
+    public String publish(@Body JsonObject message) {
+        // Subscribers which can't keep up are skipped, rather than blocking the request.
+        this.messages.offer(message, (subscriber, dropped) -> false);
+        return "Published to %d subscribers.".formatted(this.messages.getNumberOfSubscribers());
+    }
+
+    @WebSocket(value = "/echo", messages = {Ping.class, Pong.class})
+    public EchoReceiver echo(SocketSession session) {
+        return new EchoReceiver(session);
+    }
+
+    @GET("/report")
+    @Coalesced(query = "day")
+    public CompletableFuture<String> report(@Query(value = "day", required = false) String day) {
+        // This simulates an expensive query; concurrent requests share one invocation.
+        var invocation = this.reports.incrementAndGet();
+        return CompletableFuture.supplyAsync(
+                () -> "Report for %s, generated by invocation %d.".formatted(day, invocation),
+                CompletableFuture.delayedExecutor(500, TimeUnit.MILLISECONDS));
+    }
+
+    @GET("/async")
+    public CompletableFuture<String> async() {
+        return CompletableFuture.supplyAsync(() -> "Completed asynchronously!");
+    }
+
+    @GET("/numbers")
+    public Response<Stream<JsonObject>> numbers() {
+        var numbers = IntStream.range(0, 1000)
+                .mapToObj(i -> JObject.c().add("number", i).gson());
+        return new Response<>(numbers);
+    }
+
+    @GET("/config")
+    public Response<String> config() {
+        return new Response<>("magix ".repeat(1000)).precompressed();
+    }
+
+    @GET("/unsupported")
+    public String unsupported() {
+        throw new UnsupportedOperationException("This route is not implemented yet.");
+    }
+
+    @GET("/limited")
+    @RateLimit(value = 2, period = 10_000, scope = RateLimit.Scope.CLIENT)
+    public String limited() {
+        return "You can request this twice every 10 seconds.";
+    }
+
     @GET("/response")
     @POST("/response")
     public String response() {
         return "ok";
     }
+
+    public record Ping(String message) {}
+
+    public record Pong(String message, long timestamp) {}
+
+    public static final class EchoReceiver implements SocketReceiver {
+        private final SocketSession session;
+
+        public EchoReceiver(SocketSession session) {
+            this.session = session;
+        }
+
+        public void onPing(Ping ping) {
+            this.session.send(new Pong(ping.message(), System.currentTimeMillis()));
+        }
+    }
 }
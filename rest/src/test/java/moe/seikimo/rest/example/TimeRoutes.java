@@ -0,0 +1,24 @@
+package moe.seikimo.rest.example;
+
+import moe.seikimo.rest.annotations.methods.GET;
+
+import java.time.Clock;
+import java.time.Instant;
+
+public final class TimeRoutes {
+    private final Clock clock;
+
+    /**
+     * The clock is registered as a component in {@link BasicApplication#main(String[])}.
+     *
+     * @param clock The clock to read the time from.
+     */
+    public TimeRoutes(Clock clock) {
+        this.clock = clock;
+    }
+
+    @GET("/time")
+    public String time() {
+        return "The time is %s.".formatted(Instant.now(this.clock));
+    }
+}
@@ -0,0 +1,30 @@
+package moe.seikimo.rest.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class LatencyHistogramTest {
+    /**
+     * This test ensures that every value falls in a bucket which contains it.
+     */
+    @Test
+    public void bucketBounds() {
+        for (var value = 0L; value < 100_000; value += 7) {
+            var index = LatencyHistogram.index(value);
+            Assert.assertTrue(value <= LatencyHistogram.upperBound(index));
+            Assert.assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void quantiles() {
+        var histogram = new LatencyHistogram();
+        for (var i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        Assert.assertEquals(1000, histogram.count());
+        var median = histogram.quantile(0.5);
+        Assert.assertTrue(median >= 500_000 && median <= 500_000 * 1.125);
+    }
+}